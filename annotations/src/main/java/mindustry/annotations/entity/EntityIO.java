@@ -191,6 +191,19 @@ public class EntityIO{
         }
     }
 
+    void writeSyncUnchanged(MethodSpec.Builder method, Seq<Svar> syncFields){
+        this.method = method;
+
+        //base read code; an unchanged state still counts as an update for interpolation timing
+        st("if(lastUpdated != 0) updateSpacing = $T.timeSinceMillis(lastUpdated)", Time.class);
+        st("lastUpdated = $T.millis()", Time.class);
+
+        //target stays the same, continue interpolating towards it from the current state
+        for(Svar field : syncFields){
+            st("this.$L = this.$L", field.name() + lastSuf, field.name());
+        }
+    }
+
     void writeInterpolate(MethodSpec.Builder method, Seq<Svar> fields) throws Exception{
         this.method = method;
 
@@ -469,6 +469,11 @@ public class EntityProcess extends BaseProcessor{
                             io.writeSyncManual(mbuilder, first.name().equals("writeSyncManual"), syncedFields);
                         }
 
+                        //SPECIAL CASE: sync code for entities that have not changed since the last snapshot
+                        if(first.name().equals("readSyncUnchanged")){
+                            io.writeSyncUnchanged(mbuilder, syncedFields);
+                        }
+
                         //SPECIAL CASE: interpolate method implementation
                         if(first.name().equals("interpolate")){
                             io.writeInterpolate(mbuilder, syncedFields);
@@ -310,12 +310,15 @@ public class CallGenerator{
 
         String sendString;
 
+        //packets sent to all players from the server are encoded once for all of them
         if(forwarded){ //forward packet
             if(!ent.local.isClient){ //if the client doesn't get it called locally, forward it back after validation
-                sendString = "mindustry.Vars.net.send(";
+                sendString = "mindustry.Vars.net.broadcast(";
             }else{
-                sendString = "mindustry.Vars.net.sendExcept(exceptConnection, ";
+                sendString = "mindustry.Vars.net.broadcastExcept(exceptConnection, ";
             }
+        }else if(toAll && ent.where == Loc.server){ //send to all players
+            sendString = "mindustry.Vars.net.broadcast(";
         }else if(toAll){ //send to all players / to server
             sendString = "mindustry.Vars.net.send(";
         }else{ //send to specific client from server
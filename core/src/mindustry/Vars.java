@@ -223,6 +223,9 @@ public class Vars implements Loadable{
     public static AsyncCore asyncCore;
     public static BaseRegistry bases;
     public static GlobalConstants constants;
+    public static LogicScheduler logicScheduler;
+    public static LogicProfiler logicProfiler;
+    public static LogicProgramCache logicPrograms;
     public static MapEditor editor;
     public static GameService service = new GameService();
 
@@ -231,6 +234,7 @@ public class Vars implements Loadable{
     public static Maps maps;
     public static WaveSpawner spawner;
     public static BlockIndexer indexer;
+    public static TargetIndexer targets;
     public static Pathfinder pathfinder;
 
     public static Control control;
@@ -250,6 +254,7 @@ public class Vars implements Loadable{
 
     public static void init(){
         Groups.init();
+        NetServer.reserveSyncIds();
 
         if(loadLocales){
             //load locales
@@ -297,9 +302,13 @@ public class Vars implements Loadable{
         maps = new Maps();
         spawner = new WaveSpawner();
         indexer = new BlockIndexer();
+        targets = new TargetIndexer();
         pathfinder = new Pathfinder();
         bases = new BaseRegistry();
         constants = new GlobalConstants();
+        logicScheduler = new LogicScheduler();
+        logicProfiler = new LogicProfiler();
+        logicPrograms = new LogicProgramCache();
         javaPath =
             new Fi(OS.prop("java.home")).child("bin/java").exists() ? new Fi(OS.prop("java.home")).child("bin/java").absolutePath() :
             Core.files.local("jre/bin/java").exists() ? Core.files.local("jre/bin/java").absolutePath() :
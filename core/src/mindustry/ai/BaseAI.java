@@ -93,11 +93,13 @@ public class BaseAI{
                 if(calcTile == null){
                     calculating = false;
                 }
+            }else if(HierarchicalAstar.useFor(world.width(), world.height())){
+                //on large maps, a single long-range query is cheaper than walking the flowfield over many frames
+                findPath();
             }else{
                 var field = pathfinder.getField(data.team, Pathfinder.costGround, Pathfinder.fieldCore);
 
                 if(field.weights != null){
-                    int[][] weights = field.weights;
                     for(int i = 0; i < pathStep; i++){
                         int minCost = Integer.MAX_VALUE;
                         int cx = calcTile.x, cy = calcTile.y;
@@ -106,8 +108,8 @@ public class BaseAI{
                             int nx = cx + p.x, ny = cy + p.y;
 
                             Tile other = world.tile(nx, ny);
-                            if(other != null && weights[nx][ny] < minCost && weights[nx][ny] != -1){
-                                minCost = weights[nx][ny];
+                            if(other != null && field.weight(nx, ny) < minCost && field.weight(nx, ny) != -1){
+                                minCost = field.weight(nx, ny);
                                 calcTile = other;
                                 foundAny = true;
                             }
@@ -275,6 +277,29 @@ public class BaseAI{
         return true;
     }
 
+    /** Finds the path from the spawn to the closest enemy core with one hierarchical query. */
+    private void findPath(){
+        CoreBuild core = state.teams.closestEnemyCore(calcTile.worldx(), calcTile.worldy(), data.team);
+        Seq<Tile> tiles = core == null ? null : pathfinder.findPath(data.team, Pathfinder.costGround, calcTile, core.tile);
+
+        calculating = false;
+        calcCount = 0;
+        calcPath.clear();
+        calcTile = null;
+        totalCalcs ++;
+
+        if(tiles == null || tiles.isEmpty()) return;
+
+        path.clear();
+        for(Tile tile : tiles){
+            path.add(tile.pos());
+            for(Point2 p : Geometry.d8){
+                path.add(Point2.pack(p.x + tile.x, p.y + tile.y));
+            }
+        }
+        foundPath = true;
+    }
+
     private void tryWalls(){
         Block wall = wallType;
         Building spawnt = state.rules.defaultTeam.core() != null ? state.rules.defaultTeam.core() : data.team.core();
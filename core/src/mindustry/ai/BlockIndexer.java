@@ -45,6 +45,13 @@ public class BlockIndexer{
     private Seq<Tile> returnArray = new Seq<>();
     /** Array used for returning and reusing. */
     private Seq<Building> breturnArray = new Seq<>(Building.class);
+    /** Coverages that are invalidated by block changes in each quadrant. Indexed by qx + qy * quadWidth. */
+    private Seq<Coverage>[] coverages;
+    /** Amount of targetable buildings of each team that overlap each quadrant. Indexed by team ID, then by qx + qy * quadWidth. */
+    private int[][] targetable = new int[Team.all.length][];
+
+    /** Amount of coverage lookups, and how many of them did not need a query. */
+    public int coverageLookups, coverageHits;
 
     public BlockIndexer(){
         clearFlags();
@@ -60,6 +67,17 @@ public class BlockIndexer{
         });
 
         Events.on(WorldLoadEvent.class, event -> {
+            //coverages of the previous world can't be used anymore
+            if(coverages != null){
+                for(var seq : coverages){
+                    if(seq == null) continue;
+                    for(int i = 0; i < seq.size; i++){
+                        seq.items[i].valid = false;
+                        seq.items[i].subscribed = false;
+                    }
+                }
+            }
+
             damagedTiles = new Seq[Team.all.length];
             flagMap = new TileArray[Team.all.length][BlockFlag.all.length];
             activeTeams = new Seq<>(Team.class);
@@ -71,6 +89,8 @@ public class BlockIndexer{
             quadWidth = Mathf.ceil(world.width() / (float)quadrantSize);
             quadHeight = Mathf.ceil(world.height() / (float)quadrantSize);
             blocksPresent = new boolean[content.blocks().size];
+            coverages = new Seq[quadWidth * quadHeight];
+            targetable = new int[Team.all.length][];
 
             for(Tile tile : world.tiles){
                 process(tile);
@@ -98,6 +118,8 @@ public class BlockIndexer{
     }
 
     public void removeIndex(Tile tile){
+        invalidateCoverage(tile);
+
         var team = tile.team();
         if(tile.build != null && tile.isCenter()){
             var build = tile.build;
@@ -116,6 +138,7 @@ public class BlockIndexer{
             //unregister building from building quadtree
             if(data.buildings != null){
                 data.buildings.remove(build);
+                countTargetable(team, build, -1);
             }
 
             //is no longer registered
@@ -129,6 +152,7 @@ public class BlockIndexer{
     }
 
     public void addIndex(Tile tile){
+        invalidateCoverage(tile);
         process(tile);
 
         var drop = tile.drop();
@@ -239,6 +263,93 @@ public class BlockIndexer{
         return size > 0;
     }
 
+    /**
+     * @return the buildings of a building's team within range of it, as found by {@link #eachBlock(Teamc, float, Boolf, Cons)}.
+     * The previous coverage is reused if no block within its range has changed since it was created; otherwise, a new one is queried.
+     * @param coverage the previous result of this method for the building, or null.
+     */
+    public Coverage coverage(Building build, float range, @Nullable Coverage coverage){
+        if(coverage == null) coverage = new Coverage();
+        coverageLookups++;
+
+        if(coverage.valid && coverage.range == range && coverage.team == build.team && coverage.x == build.x && coverage.y == build.y){
+            coverageHits++;
+            return coverage;
+        }
+
+        unsubscribe(coverage);
+
+        Coverage result = coverage;
+        result.buildings.clear();
+        result.team = build.team;
+        result.x = build.x;
+        result.y = build.y;
+        result.range = range;
+        eachBlock(build, range, b -> true, result.buildings::add);
+
+        subscribe(result);
+        //without a world to subscribe to, the coverage must be queried every time
+        result.valid = result.subscribed;
+        return result;
+    }
+
+    /** Stops updating a coverage, e.g. when the building that uses it is removed. */
+    public void removeCoverage(@Nullable Coverage coverage){
+        if(coverage == null) return;
+        unsubscribe(coverage);
+        coverage.valid = false;
+    }
+
+    private void subscribe(Coverage coverage){
+        if(coverages == null) return;
+
+        //buildings are in range if their center is within range plus half their size
+        float margin = coverage.range + maxBlockSize * tilesize / 2f;
+        coverage.minQx = Mathf.clamp(World.toTile(coverage.x - margin) / quadrantSize, 0, quadWidth - 1);
+        coverage.minQy = Mathf.clamp(World.toTile(coverage.y - margin) / quadrantSize, 0, quadHeight - 1);
+        coverage.maxQx = Mathf.clamp(World.toTile(coverage.x + margin) / quadrantSize, 0, quadWidth - 1);
+        coverage.maxQy = Mathf.clamp(World.toTile(coverage.y + margin) / quadrantSize, 0, quadHeight - 1);
+
+        for(int qx = coverage.minQx; qx <= coverage.maxQx; qx++){
+            for(int qy = coverage.minQy; qy <= coverage.maxQy; qy++){
+                int index = qx + qy * quadWidth;
+                if(coverages[index] == null) coverages[index] = new Seq<>(false, 8, Coverage.class);
+                coverages[index].add(coverage);
+            }
+        }
+        coverage.subscribed = true;
+    }
+
+    private void unsubscribe(Coverage coverage){
+        if(!coverage.subscribed) return;
+        coverage.subscribed = false;
+
+        for(int qx = coverage.minQx; qx <= coverage.maxQx; qx++){
+            for(int qy = coverage.minQy; qy <= coverage.maxQy; qy++){
+                var seq = coverages[qx + qy * quadWidth];
+                if(seq != null) seq.remove(coverage, true);
+            }
+        }
+    }
+
+    private void invalidateCoverage(Tile tile){
+        if(coverages == null) return;
+
+        int qx = tile.x / quadrantSize, qy = tile.y / quadrantSize;
+        if(qx >= quadWidth || qy >= quadHeight) return;
+
+        var seq = coverages[qx + qy * quadWidth];
+        if(seq == null) return;
+
+        float wx = tile.worldx(), wy = tile.worldy(), margin = maxBlockSize * tilesize / 2f;
+        for(int i = 0; i < seq.size; i++){
+            Coverage coverage = seq.items[i];
+            if(Mathf.within(wx, wy, coverage.x, coverage.y, coverage.range + margin)){
+                coverage.valid = false;
+            }
+        }
+    }
+
     /** Get all enemy blocks with a flag. */
     public Seq<Tile> getEnemy(Team team, BlockFlag type){
         returnArray.clear();
@@ -335,6 +446,30 @@ public class BlockIndexer{
         return target;
     }
 
+    /**
+     * @return whether {@link #findEnemyTile(Team, float, float, float, Boolf)} may find a building in this range.
+     * If this returns false, it would return null for any predicate.
+     */
+    public boolean anyEnemyTiles(Team team, float x, float y, float range){
+        int minx = quadrant(x - range, quadWidth), miny = quadrant(y - range, quadHeight), maxx = quadrant(x + range, quadWidth), maxy = quadrant(y + range, quadHeight);
+
+        for(int i = 0; i < activeTeams.size; i++){
+            Team enemy = activeTeams.items[i];
+            if(enemy == team || (enemy == Team.derelict && !state.rules.coreCapture)) continue;
+
+            int[] counts = targetable[enemy.id];
+            if(counts == null) continue;
+
+            for(int qy = miny; qy <= maxy; qy++){
+                for(int qx = minx; qx <= maxx; qx++){
+                    if(counts[qx + qy * quadWidth] > 0) return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
     public Building findTile(Team team, float x, float y, float range, Boolf<Building> pred){
         return findTile(team, x, y, range, pred, false);
     }
@@ -396,6 +531,31 @@ public class BlockIndexer{
         return findClosestOre(unit.x, unit.y, item);
     }
 
+    /** Adds a targetable building to the quadrants its hitbox overlaps, or removes it with a negative amount. */
+    private void countTargetable(Team team, Building build, int amount){
+        if(!build.block.targetable) return;
+
+        int[] counts = targetable[team.id];
+        if(counts == null){
+            counts = targetable[team.id] = new int[quadWidth * quadHeight];
+        }
+
+        //one unit of margin, so buildings that touch the edge of a query are still counted
+        float half = build.hitSize() / 2f + 1f;
+        int minx = quadrant(build.x - half, quadWidth), miny = quadrant(build.y - half, quadHeight), maxx = quadrant(build.x + half, quadWidth), maxy = quadrant(build.y + half, quadHeight);
+
+        for(int qy = miny; qy <= maxy; qy++){
+            for(int qx = minx; qx <= maxx; qx++){
+                counts[qx + qy * quadWidth] += amount;
+            }
+        }
+    }
+
+    /** @return the quadrant that contains a world coordinate, clamped to the map. */
+    private static int quadrant(float value, int quadrants){
+        return Mathf.clamp((int)Math.floor(value / (quadrantSize * tilesize)), 0, Math.max(quadrants - 1, 0));
+    }
+
     private void process(Tile tile){
         var team = tile.team();
         //only process entity changes with centered tiles
@@ -426,6 +586,7 @@ public class BlockIndexer{
                 data.buildings = new QuadTree<>(new Rect(0, 0, world.unitWidth(), world.unitHeight()));
             }
             data.buildings.insert(tile.build);
+            countTargetable(team, tile.build, 1);
 
             notifyBuildDamaged(tile.build);
         }
@@ -438,6 +599,28 @@ public class BlockIndexer{
         if(tile.blockID() < blocksPresent.length) blocksPresent[tile.blockID()] = true;
     }
 
+    /** Buildings of a team within range of a point. Kept by buildings that repeatedly affect the same area, see {@link #coverage(Building, float, Coverage)}. */
+    public static class Coverage{
+        /** Buildings in range. Must not be modified. */
+        public final Seq<Building> buildings = new Seq<>(false, 16, Building.class);
+
+        Team team;
+        float x, y, range;
+        /** Whether no block in range has changed since this was queried. */
+        boolean valid;
+        /** Whether this is registered in the quadrants within these bounds. */
+        boolean subscribed;
+        int minQx, minQy, maxQx, maxQy;
+
+        /** Calls the consumer for every building in range that matches the predicate. */
+        public void each(Boolf<Building> pred, Cons<Building> cons){
+            Building[] items = buildings.items;
+            for(int i = 0, n = buildings.size; i < n; i++){
+                if(pred.get(items[i])) cons.get(items[i]);
+            }
+        }
+    }
+
     public static class TileArray implements Iterable<Tile>{
         Seq<Tile> tiles = new Seq<>(false, 16);
         IntSet contained = new IntSet();
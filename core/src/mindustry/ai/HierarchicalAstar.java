@@ -0,0 +1,534 @@
+package mindustry.ai;
+
+import arc.math.geom.*;
+import arc.struct.IntSet.*;
+import arc.struct.*;
+import mindustry.ai.Pathfinder.*;
+import mindustry.game.*;
+import mindustry.world.*;
+
+import java.util.*;
+
+import static mindustry.Vars.*;
+
+/**
+ * Hierarchical A* over the tile data of a {@link Pathfinder}, for long-range queries on large maps. Uses the same costs as the flowfields of a team.
+ * The map is split into square clusters. Entrances between neighbouring clusters are the nodes of an abstract graph, and the costs of travelling
+ * between the nodes of a cluster are calculated the first time a search reaches it. Queries search the abstract graph, then refine each step inside
+ * a single cluster. Paths are close to, but not always exactly, the cheapest path.
+ * Tile changes only invalidate the clusters around the changed tile. Main thread only, like the tile data it reads.
+ */
+public class HierarchicalAstar{
+    /** Maps with fewer tiles than this on their longest side use regular {@link Astar} queries. */
+    public static int minMapSize = 300;
+    /** Default cluster side length, in tiles. */
+    public static final int defaultClusterSize = 16;
+
+    private static final float inf = Float.POSITIVE_INFINITY;
+    private static final int endNode = -2, impassable = -1;
+
+    final Pathfinder pathfinder;
+    final Team team;
+    final PathCost cost;
+    final int clusterSize;
+
+    /** tile data this graph was built from; rebuilt when the pathfinder loads a new world */
+    int[] tiles;
+    int width, height, clustersX, clustersY;
+    /** tile indices of the abstract graph nodes in each cluster, or null if the cluster has not been built */
+    IntSeq[] nodes;
+    /** cost of travelling from node i to node j of a cluster, stored at [i * nodeCount + j] */
+    float[][] nodeCosts;
+    /** for each node tile index, the tile indices it connects to in neighbouring clusters */
+    IntMap<IntSeq> links = new IntMap<>();
+    /** node tile index to its index in the node list of its cluster */
+    IntIntMap nodeIndex = new IntIntMap();
+    /** clusters that contain changed tiles since the last query */
+    IntSet dirty = new IntSet();
+    /** amount of clusters with calculated node costs */
+    int builtClusters;
+
+    //local search buffers, in cluster-local coordinates
+    float[] localCosts;
+    int[] localParents;
+    //abstract search buffers, keyed by node tile index
+    IntFloatMap abstractCosts = new IntFloatMap();
+    IntIntMap abstractParents = new IntIntMap();
+    //clusters are built lazily during the abstract search, so each search needs its own heap
+    Heap localHeap = new Heap(), abstractHeap = new Heap();
+    Seq<Tile> out = new Seq<>();
+    IntSeq chain = new IntSeq(), segment = new IntSeq();
+
+    public HierarchicalAstar(Pathfinder pathfinder, Team team, PathCost cost){
+        this(pathfinder, team, cost, defaultClusterSize);
+    }
+
+    public HierarchicalAstar(Pathfinder pathfinder, Team team, PathCost cost, int clusterSize){
+        this.pathfinder = pathfinder;
+        this.team = team;
+        this.cost = cost;
+        this.clusterSize = clusterSize;
+        localCosts = new float[clusterSize * clusterSize];
+        localParents = new int[clusterSize * clusterSize];
+    }
+
+    /** @return whether hierarchical queries are used for a map of this size. */
+    public static boolean useFor(int width, int height){
+        return Math.max(width, height) >= minMapSize;
+    }
+
+    /** Marks the cluster containing a tile for rebuilding. Called by the pathfinder after the tile's data has changed. */
+    public void updateTile(int index){
+        if(tiles == null || index >= tiles.length) return;
+
+        dirty.add(clusterOf(index % width, index / width));
+    }
+
+    /**
+     * Finds a path between two tiles. The start tile is not included in the result; the end tile is.
+     * The result is empty if there is no path, and is reused between calls.
+     */
+    public Seq<Tile> pathfind(Tile from, Tile to){
+        if(tiles != pathfinder.tiles){
+            build();
+        }else if(dirty.size > 0){
+            rebuildDirty();
+        }
+
+        out.clear();
+
+        int start = from.x + from.y * width, end = to.x + to.y * width;
+        int startCluster = clusterOf(from.x, from.y), endCluster = clusterOf(to.x, to.y);
+
+        if(start == end || !passable(end)) return out;
+
+        //try staying inside the cluster first
+        if(startCluster == endCluster){
+            searchLocal(startCluster, start, false);
+            if(localCosts[local(end)] < inf){
+                appendLocal(startCluster, start, end);
+                return out;
+            }
+        }
+
+        if(!searchAbstract(start, startCluster, end, endCluster)) return out;
+
+        //refine: start -> first node, node -> node, last node -> end
+        int prev = start;
+        for(int i = 0; i < chain.size; i++){
+            int next = chain.items[i];
+            IntSeq link = links.get(prev);
+
+            if(link != null && link.contains(next)){
+                //crossing into the next cluster
+                out.add(world.tiles.geti(next));
+            }else{
+                int cluster = clusterOf(next % width, next / width);
+                searchLocal(cluster, prev, false);
+                appendLocal(cluster, prev, next);
+            }
+
+            prev = next;
+        }
+
+        return out;
+    }
+
+    /** @return amount of clusters whose node costs have been calculated. */
+    public int builtClusters(){
+        return builtClusters;
+    }
+
+    /** @return approximate heap memory used by the abstract graph and search buffers, in bytes. */
+    public long memoryUsage(){
+        if(nodes == null) return 0;
+
+        long total = (localCosts.length + localParents.length) * 4L + nodes.length * 8L;
+        for(int i = 0; i < nodes.length; i++){
+            if(nodes[i] != null){
+                total += nodes[i].items.length * 4L + nodeCosts[i].length * 4L;
+            }
+        }
+        for(var entry : links){
+            total += 16 + entry.value.items.length * 4L;
+        }
+        return total + nodeIndex.size * 8L + abstractCosts.size * 16L;
+    }
+
+    /** Places the entrances of the whole map. Node costs are calculated as clusters are reached by searches. */
+    public void build(){
+        tiles = pathfinder.tiles;
+        width = pathfinder.width;
+        height = pathfinder.height;
+        clustersX = (width + clusterSize - 1) / clusterSize;
+        clustersY = (height + clusterSize - 1) / clusterSize;
+        nodes = new IntSeq[clustersX * clustersY];
+        nodeCosts = new float[clustersX * clustersY][];
+        links.clear();
+        nodeIndex.clear();
+        dirty.clear();
+        builtClusters = 0;
+
+        for(int cy = 0; cy < clustersY; cy++){
+            for(int cx = 0; cx < clustersX; cx++){
+                if(cx < clustersX - 1) buildBorder(cx, cy, true);
+                if(cy < clustersY - 1) buildBorder(cx, cy, false);
+            }
+        }
+    }
+
+    void rebuildDirty(){
+        IntSetIterator it = dirty.iterator();
+        while(it.hasNext){
+            int cluster = it.next(), cx = cluster % clustersX, cy = cluster / clustersX;
+
+            //entrances on all sides of the cluster may have changed, which changes the nodes of its neighbours
+            if(cx > 0) buildBorder(cx - 1, cy, true);
+            if(cx < clustersX - 1) buildBorder(cx, cy, true);
+            if(cy > 0) buildBorder(cx, cy - 1, false);
+            if(cy < clustersY - 1) buildBorder(cx, cy, false);
+
+            invalidate(cluster);
+            if(cx > 0) invalidate(cluster - 1);
+            if(cx < clustersX - 1) invalidate(cluster + 1);
+            if(cy > 0) invalidate(cluster - clustersX);
+            if(cy < clustersY - 1) invalidate(cluster + clustersX);
+        }
+
+        dirty.clear();
+    }
+
+    void invalidate(int cluster){
+        IntSeq list = nodes[cluster];
+        if(list == null) return;
+
+        for(int i = 0; i < list.size; i++){
+            nodeIndex.remove(list.items[i], 0);
+        }
+        nodes[cluster] = null;
+        nodeCosts[cluster] = null;
+        builtClusters--;
+    }
+
+    /** Recreates the entrances between a cluster and the cluster to its right (vertical) or above it (horizontal). */
+    void buildBorder(int cx, int cy, boolean vertical){
+        int length = vertical ? Math.min(clusterSize, height - cy * clusterSize) : Math.min(clusterSize, width - cx * clusterSize);
+        int runStart = -1;
+
+        //remove previous links across this border
+        for(int i = 0; i < length; i++){
+            int a = borderTile(cx, cy, vertical, i, false), b = borderTile(cx, cy, vertical, i, true);
+            unlink(a, b);
+            unlink(b, a);
+        }
+
+        for(int i = 0; i <= length; i++){
+            boolean open = i < length && passable(borderTile(cx, cy, vertical, i, false)) && passable(borderTile(cx, cy, vertical, i, true));
+
+            if(open && runStart == -1){
+                runStart = i;
+            }else if(!open && runStart != -1){
+                //one entrance in the middle of each open run
+                int mid = (runStart + i - 1) / 2;
+                int a = borderTile(cx, cy, vertical, mid, false), b = borderTile(cx, cy, vertical, mid, true);
+                link(a, b);
+                link(b, a);
+                runStart = -1;
+            }
+        }
+    }
+
+    int borderTile(int cx, int cy, boolean vertical, int offset, boolean other){
+        int x, y;
+        if(vertical){
+            x = (cx + 1) * clusterSize - (other ? 0 : 1);
+            y = cy * clusterSize + offset;
+        }else{
+            x = cx * clusterSize + offset;
+            y = (cy + 1) * clusterSize - (other ? 0 : 1);
+        }
+        return x + y * width;
+    }
+
+    void link(int from, int to){
+        IntSeq seq = links.get(from);
+        if(seq == null) links.put(from, seq = new IntSeq(2));
+        seq.add(to);
+    }
+
+    void unlink(int from, int to){
+        IntSeq seq = links.get(from);
+        if(seq != null){
+            seq.removeValue(to);
+            if(seq.isEmpty()) links.remove(from);
+        }
+    }
+
+    /** Collects the nodes of a cluster and calculates the costs between them, if this has not been done since the cluster last changed. */
+    void ensureCluster(int cluster){
+        if(nodes[cluster] != null) return;
+
+        IntSeq list = new IntSeq();
+        int cx = cluster % clustersX, cy = cluster / clustersX;
+        int x0 = cx * clusterSize, y0 = cy * clusterSize, x1 = Math.min(x0 + clusterSize, width), y1 = Math.min(y0 + clusterSize, height);
+
+        //nodes can only be on the edges of a cluster
+        for(int y = y0; y < y1; y++){
+            for(int x = x0; x < x1; x++){
+                if(x != x0 && x != x1 - 1 && y != y0 && y != y1 - 1) continue;
+
+                int index = x + y * width;
+                if(links.containsKey(index)){
+                    nodeIndex.put(index, list.size);
+                    list.add(index);
+                }
+            }
+        }
+
+        float[] costs = new float[list.size * list.size];
+        for(int i = 0; i < list.size; i++){
+            searchLocal(cluster, list.items[i], false);
+            for(int j = 0; j < list.size; j++){
+                costs[i * list.size + j] = localCosts[local(list.items[j])];
+            }
+        }
+
+        nodes[cluster] = list;
+        nodeCosts[cluster] = costs;
+        builtClusters++;
+    }
+
+    /**
+     * Searches the abstract graph from the start tile to the end tile. The resulting chain of node tiles, ending with the end tile, is stored in {@link #chain}.
+     * @return whether a path was found.
+     */
+    boolean searchAbstract(int start, int startCluster, int end, int endCluster){
+        abstractCosts.clear();
+        abstractParents.clear();
+        abstractHeap.clear();
+        chain.clear();
+
+        //the local searches below overwrite the local buffers, so the clusters must be built first
+        ensureCluster(startCluster);
+        ensureCluster(endCluster);
+
+        //connect the nodes of the end cluster to the end tile, searching backwards
+        IntSeq endNodes = nodes[endCluster];
+        float[] endCosts = new float[endNodes.size];
+        searchLocal(endCluster, end, true);
+        for(int i = 0; i < endNodes.size; i++){
+            endCosts[i] = localCosts[local(endNodes.items[i])];
+        }
+
+        //connect the start tile to the nodes of its cluster
+        IntSeq startNodes = nodes[startCluster];
+        searchLocal(startCluster, start, false);
+        for(int i = 0; i < startNodes.size; i++){
+            int node = startNodes.items[i];
+            float c = localCosts[local(node)];
+            if(c < inf){
+                relax(node, -1, c, end);
+            }
+        }
+
+        boolean found = false;
+
+        while(!abstractHeap.isEmpty()){
+            float priority = abstractHeap.peekCost();
+            int node = abstractHeap.poll();
+
+            if(node == endNode){
+                found = true;
+                break;
+            }
+
+            float current = abstractCosts.get(node, inf);
+            //outdated heap entry
+            if(priority > current + heuristic(node, end)) continue;
+
+            int cluster = clusterOf(node % width, node / width);
+            ensureCluster(cluster);
+            int index = nodeIndex.get(node, -1);
+            if(index == -1) continue;
+
+            if(cluster == endCluster && endCosts[index] < inf){
+                relax(endNode, node, current + endCosts[index], end);
+            }
+
+            //nodes in the same cluster
+            IntSeq list = nodes[cluster];
+            float[] costs = nodeCosts[cluster];
+            for(int j = 0; j < list.size; j++){
+                float c = costs[index * list.size + j];
+                if(j != index && c < inf){
+                    relax(list.items[j], node, current + c, end);
+                }
+            }
+
+            //nodes in neighbouring clusters
+            IntSeq link = links.get(node);
+            if(link != null){
+                for(int j = 0; j < link.size; j++){
+                    int other = link.items[j];
+                    relax(other, node, current + cost(other), end);
+                }
+            }
+        }
+
+        abstractHeap.clear();
+        if(!found) return false;
+
+        int node = endNode;
+        while(node != -1){
+            chain.add(node == endNode ? end : node);
+            node = abstractParents.get(node, -1);
+        }
+        chain.reverse();
+        return true;
+    }
+
+    void relax(int node, int parent, float c, int end){
+        if(c < abstractCosts.get(node, inf)){
+            abstractCosts.put(node, c);
+            abstractParents.put(node, parent);
+            abstractHeap.add(node, node == endNode ? c : c + heuristic(node, end));
+        }
+    }
+
+    /** @return a lower bound of the cost between two tiles, as every tile costs at least 1 to enter. */
+    float heuristic(int from, int to){
+        return Math.abs(from % width - to % width) + Math.abs(from / width - to / width);
+    }
+
+    /**
+     * Runs Dijkstra from a tile, limited to a cluster. Results are stored in {@link #localCosts} and {@link #localParents}, in cluster-local coordinates.
+     * @param reverse if true, costs are those of travelling from each tile to the start tile instead.
+     */
+    void searchLocal(int cluster, int start, boolean reverse){
+        int cx = cluster % clustersX, cy = cluster / clustersX;
+        int x0 = cx * clusterSize, y0 = cy * clusterSize, x1 = Math.min(x0 + clusterSize, width), y1 = Math.min(y0 + clusterSize, height);
+
+        Arrays.fill(localCosts, inf);
+        Arrays.fill(localParents, -1);
+        localHeap.clear();
+
+        int startLocal = local(start);
+        localCosts[startLocal] = 0f;
+        localHeap.add(startLocal, 0f);
+
+        while(!localHeap.isEmpty()){
+            float current = localHeap.peekCost();
+            int next = localHeap.poll();
+            if(current > localCosts[next]) continue;
+
+            int nx = next % clusterSize + x0, ny = next / clusterSize + y0;
+
+            for(Point2 point : Geometry.d4){
+                int dx = nx + point.x, dy = ny + point.y;
+                if(dx < x0 || dy < y0 || dx >= x1 || dy >= y1) continue;
+
+                int other = dx + dy * width;
+                if(!passable(other)) continue;
+
+                //costs are those of entering a tile, like in flowfields
+                float c = current + (reverse ? cost(nx + ny * width) : cost(other));
+                int otherLocal = (dx - x0) + (dy - y0) * clusterSize;
+
+                if(c < localCosts[otherLocal]){
+                    localCosts[otherLocal] = c;
+                    localParents[otherLocal] = next;
+                    localHeap.add(otherLocal, c);
+                }
+            }
+        }
+    }
+
+    /** Appends the path from the last local search to a target tile, excluding the start tile. */
+    void appendLocal(int cluster, int start, int target){
+        int x0 = (cluster % clustersX) * clusterSize, y0 = (cluster / clustersX) * clusterSize;
+        int startLocal = local(start);
+
+        segment.clear();
+        for(int current = local(target); current != startLocal && current != -1; current = localParents[current]){
+            segment.add((current % clusterSize + x0) + (current / clusterSize + y0) * width);
+        }
+
+        for(int i = segment.size - 1; i >= 0; i--){
+            out.add(world.tiles.geti(segment.items[i]));
+        }
+    }
+
+    int cost(int index){
+        return cost.getCost(team, tiles[index]);
+    }
+
+    boolean passable(int index){
+        return cost(index) != impassable;
+    }
+
+    int clusterOf(int x, int y){
+        return x / clusterSize + (y / clusterSize) * clustersX;
+    }
+
+    /** @return local index of a tile inside its cluster. */
+    int local(int index){
+        return (index % width) % clusterSize + ((index / width) % clusterSize) * clusterSize;
+    }
+
+    /** Minimal binary heap of int values with float priorities. */
+    static class Heap{
+        int[] values = new int[64];
+        float[] costs = new float[64];
+        int size;
+
+        void add(int value, float cost){
+            if(size == values.length){
+                values = Arrays.copyOf(values, size * 2);
+                costs = Arrays.copyOf(costs, size * 2);
+            }
+
+            int i = size++;
+            while(i > 0){
+                int parent = (i - 1) >> 1;
+                if(costs[parent] <= cost) break;
+                values[i] = values[parent];
+                costs[i] = costs[parent];
+                i = parent;
+            }
+            values[i] = value;
+            costs[i] = cost;
+        }
+
+        float peekCost(){
+            return costs[0];
+        }
+
+        int poll(){
+            int result = values[0];
+            int value = values[--size];
+            float cost = costs[size];
+
+            int i = 0;
+            while(true){
+                int child = i * 2 + 1;
+                if(child >= size) break;
+                if(child + 1 < size && costs[child + 1] < costs[child]) child++;
+                if(costs[child] >= cost) break;
+                values[i] = values[child];
+                costs[i] = costs[child];
+                i = child;
+            }
+            values[i] = value;
+            costs[i] = cost;
+            return result;
+        }
+
+        boolean isEmpty(){
+            return size == 0;
+        }
+
+        void clear(){
+            size = 0;
+        }
+    }
+}
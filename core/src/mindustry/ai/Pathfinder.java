@@ -17,6 +17,9 @@ import mindustry.world.blocks.environment.*;
 import mindustry.world.blocks.storage.*;
 import mindustry.world.meta.*;
 
+import java.util.*;
+import java.util.concurrent.*;
+
 import static mindustry.Vars.*;
 
 public class Pathfinder implements Runnable{
@@ -24,6 +27,8 @@ public class Pathfinder implements Runnable{
     private static final int updateFPS = 60;
     private static final int updateInterval = 1000 / updateFPS;
     private static final int impassable = -1;
+    /** Amount of threads used for updating flowfields in parallel. The pathfinding thread itself waits while they run. */
+    private static final int workerThreads = Math.max(OS.cores - 1, 1);
 
     public static final int
         fieldCore = 0,
@@ -60,18 +65,30 @@ public class Pathfinder implements Runnable{
             (PathTile.damages(tile) ? 35 : 0)
     );
 
-    //maps team, cost, type to flow field
+    //maps team, cost, type to flow field; the inner arrays are only allocated for teams that use pathfinding
     Flowfield[][][] cache;
 
-    /** tile data, see PathTileStruct */
-    int[][] tiles = new int[0][0];
+    /** tile data, see PathTileStruct; row-major, indexed by x + y * width */
+    int[] tiles = new int[0];
+    /** size of the tile data array */
+    int width, height;
     /** unordered array of path data for iteration only. DO NOT iterate or access this in the main thread. */
     Seq<Flowfield> threadList = new Seq<>(), mainList = new Seq<>();
     /** handles task scheduling on the update thread. */
     TaskQueue queue = new TaskQueue();
     /** Current pathfinding thread */
     @Nullable Thread thread;
+    /** Worker pool for updating independent flowfields in parallel. Null if there is only one worker thread. */
+    @Nullable ExecutorService workers;
+    /** Frontier update tasks submitted to the worker pool. Pathfinding thread only. */
+    Seq<Callable<Object>> tasks = new Seq<>();
+    /** Incremented by the main thread whenever work is posted to the pathfinding thread. */
+    volatile int requested;
+    /** Value of {@link #requested} before the last pathfinding thread update that left all flowfields finished, or -1 if the last one didn't. */
+    volatile int completed = -1;
     IntSeq tmpArray = new IntSeq();
+    /** Hierarchical graphs for long-range queries, by team ID and cost type. Main thread only. */
+    IntMap<HierarchicalAstar> graphs = new IntMap<>();
 
     public Pathfinder(){
         clearCache();
@@ -80,13 +97,16 @@ public class Pathfinder implements Runnable{
             stop();
 
             //reset and update internal tile array
-            tiles = new int[world.width()][world.height()];
+            width = world.width();
+            height = world.height();
+            tiles = new int[width * height];
             threadList = new Seq<>();
             mainList = new Seq<>();
+            graphs.clear();
             clearCache();
 
             for(Tile tile : world.tiles){
-                tiles[tile.x][tile.y] = packTile(tile);
+                tiles[tile.array()] = packTile(tile);
             }
 
             preloadPath(getField(state.rules.waveTeam, costGround, fieldCore));
@@ -105,7 +125,7 @@ public class Pathfinder implements Runnable{
     }
 
     private void clearCache(){
-        cache = new Flowfield[256][5][5];
+        cache = new Flowfield[256][][];
     }
 
     /** Packs a tile into its internal representation. */
@@ -143,6 +163,17 @@ public class Pathfinder implements Runnable{
     /** Starts or restarts the pathfinding thread. */
     private void start(){
         stop();
+        requested++;
+
+        if(workers == null && workerThreads > 1){
+            workers = Executors.newFixedThreadPool(workerThreads, r -> {
+                Thread thread = new Thread(r, "Pathfinder-Worker");
+                thread.setDaemon(true);
+                thread.setUncaughtExceptionHandler((t, e) -> Threads.throwAppException(e));
+                return thread;
+            });
+        }
+
         thread = Threads.daemon("Pathfinder", this);
     }
 
@@ -156,18 +187,25 @@ public class Pathfinder implements Runnable{
     }
 
     /** Update a tile in the internal pathfinding grid.
-     * Causes a complete pathfinding recalculation. Main thread only. */
+     * Causes flowfields to be repaired around the tile. Main thread only. */
     public void updateTile(Tile tile){
         if(net.client()) return;
 
-        int x = tile.x, y = tile.y;
+        IntSeq changed = new IntSeq();
 
         tile.getLinkedTiles(t -> {
-            if(Structs.inBounds(t.x, t.y, tiles)){
-                tiles[t.x][t.y] = packTile(t);
+            if(t.x < width && t.y < height){
+                tiles[t.array()] = packTile(t);
+                changed.add(t.array());
             }
         });
 
+        for(HierarchicalAstar graph : graphs.values()){
+            for(int i = 0; i < changed.size; i++){
+                graph.updateTile(changed.items[i]);
+            }
+        }
+
         //can't iterate through array so use the map, which should not lead to problems
         for(Flowfield path : mainList){
             if(path != null){
@@ -178,13 +216,20 @@ public class Pathfinder implements Runnable{
             }
         }
 
+        requested++;
+
         queue.post(() -> {
             for(Flowfield data : threadList){
-                updateTargets(data, x, y);
+                repairTiles(data, changed);
             }
         });
     }
 
+    /** @return whether all flowfields have been fully calculated. This may change at any time, and is only meant for diagnostics. */
+    public boolean isConverged(){
+        return completed == requested;
+    }
+
     /** Thread implementation. */
     @Override
     public void run(){
@@ -193,12 +238,20 @@ public class Pathfinder implements Runnable{
             try{
 
                 if(state.isPlaying()){
+                    //work posted after this is not done by this update, so it must not count as converged
+                    int observed = requested;
                     queue.run();
 
-                    //total update time no longer than maxUpdate
-                    for(Flowfield data : threadList){
-                        updateFrontier(data, maxUpdate / threadList.size);
+                    if(workers == null || threadList.size <= 1){
+                        //total update time no longer than maxUpdate
+                        for(Flowfield data : threadList){
+                            updateFrontier(data, maxUpdate / threadList.size);
+                        }
+                    }else{
+                        updateParallel();
                     }
+
+                    completed = threadList.contains(f -> !f.frontier.isEmpty()) ? -1 : observed;
                 }
 
                 try{
@@ -207,13 +260,46 @@ public class Pathfinder implements Runnable{
                     //stop looping when interrupted externally
                     return;
                 }
+            }catch(InterruptedException e){
+                //interrupted while waiting for workers
+                return;
             }catch(Throwable e){
                 e.printStackTrace();
             }
         }
     }
 
+    /**
+     * Updates the frontiers of all flowfields on the worker pool. Flowfields only share the read-only tile array, so they can be updated independently.
+     * Each worker gets the same total time budget as the serial update. Pathfinding thread only.
+     */
+    private void updateParallel() throws InterruptedException{
+        long budget = Math.min(maxUpdate, maxUpdate * workerThreads / threadList.size);
+
+        tasks.clear();
+        for(Flowfield data : threadList){
+            if(data.frontier.isEmpty()) continue;
+
+            tasks.add(() -> {
+                updateFrontier(data, budget);
+                return null;
+            });
+        }
+
+        for(Future<Object> future : workers.invokeAll(tasks.list())){
+            try{
+                future.get();
+            }catch(ExecutionException e){
+                e.getCause().printStackTrace();
+            }
+        }
+    }
+
     public Flowfield getField(Team team, int costType, int fieldType){
+        if(cache[team.id] == null){
+            cache[team.id] = new Flowfield[costTypes.size][fieldTypes.size];
+        }
+
         if(cache[team.id][costType][fieldType] == null){
             Flowfield field = fieldTypes.get(fieldType).get();
             field.team = team;
@@ -222,11 +308,37 @@ public class Pathfinder implements Runnable{
             field.getPositions(field.targets);
 
             cache[team.id][costType][fieldType] = field;
+            requested++;
             queue.post(() -> registerPath(field));
         }
         return cache[team.id][costType][fieldType];
     }
 
+    /**
+     * Finds a path between two tiles, using the same costs as the flowfields of a team. The start tile is not included in the result; the end tile is.
+     * Maps that are large enough for {@link HierarchicalAstar#useFor} are searched hierarchically, which is much faster for long paths,
+     * but the path may be slightly more expensive. Other maps use {@link Astar}. The result is empty if there is no path, and is reused between calls.
+     * Main thread only.
+     */
+    public Seq<Tile> findPath(Team team, int costType, Tile from, Tile to){
+        if(HierarchicalAstar.useFor(width, height)){
+            return getGraph(team, costType).pathfind(from, to);
+        }
+
+        PathCost cost = costTypes.get(costType);
+        return Astar.pathfind(from, to, t -> cost.getCost(team, tiles[t.array()]), t -> cost.getCost(team, tiles[t.array()]) != impassable);
+    }
+
+    /** @return the hierarchical graph used by {@link #findPath} on large maps. Main thread only. */
+    public HierarchicalAstar getGraph(Team team, int costType){
+        int key = team.id + costType * 256;
+        HierarchicalAstar graph = graphs.get(key);
+        if(graph == null){
+            graphs.put(key, graph = new HierarchicalAstar(this, team, costTypes.get(costType)));
+        }
+        return graph;
+    }
+
     /** Gets next tile to travel to. Main thread only. */
     public @Nullable Tile getTargetTile(Tile tile, Flowfield path){
         if(tile == null) return null;
@@ -250,13 +362,14 @@ public class Pathfinder implements Runnable{
                     path.getPositions(path.targets);
 
                     //queue an update
+                    requested++;
                     queue.post(() -> updateTargets(path));
                 }
             }
         }
 
-        int[][] values = path.weights;
-        int value = values[tile.x][tile.y];
+        int[] values = path.weights;
+        int value = values[tile.array()];
 
         Tile current = null;
         int tl = 0;
@@ -266,10 +379,12 @@ public class Pathfinder implements Runnable{
             Tile other = world.tile(dx, dy);
             if(other == null) continue;
 
-            if(values[dx][dy] < value && (current == null || values[dx][dy] < tl) && path.passable(dx, dy) &&
+            int otherValue = values[other.array()];
+
+            if(otherValue < value && (current == null || otherValue < tl) && path.passable(dx, dy) &&
             !(point.x != 0 && point.y != 0 && (!path.passable(tile.x + point.x, tile.y) || !path.passable(tile.x, tile.y + point.y)))){ //diagonal corner trap
                 current = other;
-                tl = values[dx][dy];
+                tl = otherValue;
             }
         }
 
@@ -279,27 +394,72 @@ public class Pathfinder implements Runnable{
     }
 
     /**
-     * Clears the frontier, increments the search and sets up all flow sources.
-     * This only occurs for active teams.
+     * Repairs a flowfield after the costs of some tiles have changed.
+     * All tiles whose weight could depend on the changed tiles are invalidated, then re-relaxed from the valid tiles bordering them;
+     * weight decreases propagate outwards through the frontier as usual. The rest of the field is left untouched.
+     * If a changed tile was a target, the whole field is recalculated instead. Pathfinding thread only.
      */
-    private void updateTargets(Flowfield path, int x, int y){
-        if(!Structs.inBounds(x, y, path.weights)) return;
-
-        if(path.weights[x][y] == 0){
-            //this was a previous target
-            path.frontier.clear();
-        }else if(!path.frontier.isEmpty()){
-            //skip if this path is processing
-            return;
+    private void repairTiles(Flowfield path, IntSeq changed){
+        int[] weights = path.weights, searches = path.searches;
+        int search = path.search, invalid = search - 1;
+        IntSeq affected = path.affected;
+
+        affected.clear();
+
+        for(int i = 0; i < changed.size; i++){
+            int index = changed.items[i];
+            if(index >= weights.length) continue;
+
+            boolean target;
+            synchronized(path.targets){
+                target = path.targets.contains(Point2.pack(index % width, index / width));
+            }
+
+            if(target || (weights[index] == 0 && searches[index] == search)){
+                //this is a new or previous target, so all weights change
+                path.frontier.clear();
+                updateTargets(path);
+                return;
+            }
+
+            searches[index] = invalid;
+            affected.add(index);
+        }
+
+        //find all tiles that got their weight through one of the invalidated tiles
+        for(int i = 0; i < affected.size; i++){
+            int index = affected.items[i], x = index % width, y = index / width, weight = weights[index];
+            if(weight == impassable) continue;
+
+            for(Point2 point : Geometry.d4){
+                int dx = x + point.x, dy = y + point.y, other = dx + dy * width;
+                if(dx < 0 || dy < 0 || dx >= width || dy >= height || searches[other] != search) continue;
+
+                int otherWeight = weights[other];
+                if(otherWeight > 0 && otherWeight == weight + path.cost.getCost(path.team, tiles[other])){
+                    searches[other] = invalid;
+                    affected.add(other);
+                }
+            }
         }
 
-        //update cost of the tile TODO maybe only update the cost when it's not passable
-        path.weights[x][y] = path.cost.getCost(path.team, tiles[x][y]);
+        //clear weights, then queue up the valid border so it flows back into the invalidated area
+        for(int i = 0; i < affected.size; i++){
+            weights[affected.items[i]] = impassable;
+        }
+
+        for(int i = 0; i < affected.size; i++){
+            int index = affected.items[i], x = index % width, y = index / width;
 
-        //clear frontier to prevent contamination
-        path.frontier.clear();
+            for(Point2 point : Geometry.d4){
+                int dx = x + point.x, dy = y + point.y, other = dx + dy * width;
+                if(dx < 0 || dy < 0 || dx >= width || dy >= height) continue;
 
-        updateTargets(path);
+                if(searches[other] == search && weights[other] != impassable){
+                    path.frontier.addFirst(other);
+                }
+            }
+        }
     }
 
     /** Increments the search and sets up flow sources. Does not change the frontier. */
@@ -311,12 +471,11 @@ public class Pathfinder implements Runnable{
         synchronized(path.targets){
             //add targets
             for(int i = 0; i < path.targets.size; i++){
-                int pos = path.targets.get(i);
-                int tx = Point2.x(pos), ty = Point2.y(pos);
+                int pos = path.targets.get(i), index = Point2.x(pos) + Point2.y(pos) * width;
 
-                path.weights[tx][ty] = 0;
-                path.searches[tx][ty] = path.search;
-                path.frontier.addFirst(pos);
+                path.weights[index] = 0;
+                path.searches[index] = path.search;
+                path.frontier.addFirst(index);
             }
         }
     }
@@ -329,62 +488,84 @@ public class Pathfinder implements Runnable{
     }
 
     /**
-     * TODO wrong docs
-     * Created a new flowfield that aims to get to a certain target for a certain team.
+     * Calculates a new flowfield from scratch on the calling thread, without registering it for updates.
+     * This is slow, and only meant for validating the incrementally updated fields. Main thread only.
+     */
+    public Flowfield calculateField(Team team, int costType, int fieldType){
+        Flowfield field = fieldTypes.get(fieldType).get();
+        field.team = team;
+        field.cost = costTypes.get(costType);
+        field.getPositions(field.targets);
+
+        initPath(field);
+        updateFrontier(field, -1);
+        return field;
+    }
+
+    /**
+     * Registers a new flowfield, so that it gets updated on the pathfinding thread.
      * Pathfinding thread only.
      */
     private void registerPath(Flowfield path){
-        path.lastUpdateTime = Time.millis();
-        path.setup(tiles.length, tiles[0].length);
+        initPath(path);
 
         threadList.add(path);
 
+        Log.debug("Registered @ for team @ using @ KB.", path.getClass().getSimpleName(), path.team.name, path.memoryUsage() / 1024);
+
         //add to main thread's list of paths
         Core.app.post(() -> mainList.add(path));
+    }
+
+    /** Sets up the weights and frontier of a flowfield. */
+    private void initPath(Flowfield path){
+        path.lastUpdateTime = Time.millis();
+        path.setup(width, height);
 
         //fill with impassables by default
-        for(int x = 0; x < world.width(); x++){
-            for(int y = 0; y < world.height(); y++){
-                path.weights[x][y] = impassable;
-            }
-        }
+        Arrays.fill(path.weights, impassable);
 
         //add targets
         for(int i = 0; i < path.targets.size; i++){
-            int pos = path.targets.get(i);
-            path.weights[Point2.x(pos)][Point2.y(pos)] = 0;
-            path.frontier.addFirst(pos);
+            int pos = path.targets.get(i), index = Point2.x(pos) + Point2.y(pos) * width;
+            path.weights[index] = 0;
+            path.searches[index] = path.search;
+            path.frontier.addFirst(index);
         }
     }
 
     /** Update the frontier for a path. Pathfinding thread only. */
     private void updateFrontier(Flowfield path, long nsToRun){
         long start = Time.nanos();
+        int[] weights = path.weights, searches = path.searches;
+        if(weights == null) return;
 
         while(path.frontier.size > 0 && (nsToRun < 0 || Time.timeSinceNanos(start) <= nsToRun)){
-            Tile tile = world.tile(path.frontier.removeLast());
-            if(tile == null || path.weights == null) return; //something went horribly wrong, bail
-            int cost = path.weights[tile.x][tile.y];
+            int index = path.frontier.removeLast();
+            if(index < 0 || index >= weights.length) return; //something went horribly wrong, bail
+            int cost = weights[index];
 
             //pathfinding overflowed for some reason, time to bail. the next block update will handle this, hopefully
-            if(path.frontier.size >= world.width() * world.height()){
+            if(path.frontier.size >= weights.length){
                 path.frontier.clear();
                 return;
             }
 
             if(cost != impassable){
+                int x = index % width, y = index / width;
+
                 for(Point2 point : Geometry.d4){
 
-                    int dx = tile.x + point.x, dy = tile.y + point.y;
+                    int dx = x + point.x, dy = y + point.y;
 
-                    if(dx < 0 || dy < 0 || dx >= tiles.length || dy >= tiles[0].length) continue;
+                    if(dx < 0 || dy < 0 || dx >= width || dy >= height) continue;
 
-                    int otherCost = path.cost.getCost(path.team, tiles[dx][dy]);
+                    int other = dx + dy * width, otherCost = path.cost.getCost(path.team, tiles[other]);
 
-                    if((path.weights[dx][dy] > cost + otherCost || path.searches[dx][dy] < path.search) && otherCost != impassable){
-                        path.frontier.addFirst(Point2.pack(dx, dy));
-                        path.weights[dx][dy] = cost + otherCost;
-                        path.searches[dx][dy] = (short)path.search;
+                    if((weights[other] > cost + otherCost || searches[other] < path.search) && otherCost != impassable){
+                        path.frontier.addFirst(other);
+                        weights[other] = cost + otherCost;
+                        searches[other] = path.search;
                     }
                 }
             }
@@ -442,30 +623,43 @@ public class Pathfinder implements Runnable{
         /** Function for calculating path cost. Set before using. */
         protected PathCost cost = costTypes.get(costGround);
 
-        /** costs of getting to a specific tile */
-        public int[][] weights;
+        /** costs of getting to a specific tile; row-major, indexed by x + y * width */
+        public int[] weights;
         /** search IDs of each position - the highest, most recent search is prioritized and overwritten */
-        public int[][] searches;
-        /** search frontier, these are Pos objects */
+        public int[] searches;
+        /** search frontier, these are indices into the weight array */
         IntQueue frontier = new IntQueue();
+        /** tiles invalidated during a repair. Pathfinding thread only. */
+        final IntSeq affected = new IntSeq();
         /** all target positions; these positions have a cost of 0, and must be synchronized on! */
         final IntSeq targets = new IntSeq();
         /** current search ID */
-        int search = 1;
+        public int search = 1;
         /** last updated time */
         long lastUpdateTime;
         /** whether this flow field is ready to be used */
         boolean initialized;
 
         void setup(int width, int height){
-            this.weights = new int[width][height];
-            this.searches = new int[width][height];
+            this.weights = new int[width * height];
+            this.searches = new int[width * height];
             this.frontier.ensureCapacity((width + height) * 3);
             this.initialized = true;
         }
 
         protected boolean passable(int x, int y){
-            return cost.getCost(team, pathfinder.tiles[x][y]) != impassable;
+            return cost.getCost(team, pathfinder.tiles[x + y * pathfinder.width]) != impassable;
+        }
+
+        /** @return the weight at a position. Does not range-check. */
+        public int weight(int x, int y){
+            return weights[x + y * pathfinder.width];
+        }
+
+        /** @return approximate heap memory used by this field's arrays, in bytes. */
+        public long memoryUsage(){
+            return (weights == null ? 0 : weights.length * 4L) + (searches == null ? 0 : searches.length * 4L) +
+                (frontier.size + affected.items.length + targets.items.length) * 4L;
         }
 
         /** Gets targets to pathfind towards. This must run on the main thread. */
@@ -0,0 +1,128 @@
+package mindustry.ai;
+
+import arc.*;
+import arc.func.*;
+import arc.math.*;
+import arc.struct.*;
+import arc.util.*;
+import mindustry.entities.*;
+import mindustry.entities.Units.*;
+import mindustry.game.EventType.*;
+import mindustry.game.*;
+import mindustry.game.Teams.*;
+import mindustry.gen.*;
+
+import static mindustry.Vars.*;
+
+/**
+ * Answers the target queries of turrets. The first query of a team after each team update bins the enemy units of that team into a coarse grid,
+ * which is shared by all of its turrets until the next update; enemy buildings are binned by the {@link BlockIndexer} as they are placed.
+ * Queries with no enemies in range return immediately, which is the case for most turrets of a defensive line at any time.
+ * Other queries use the regular {@link Units} and {@link BlockIndexer} methods, so targets are chosen exactly as they would be without this class.
+ */
+public class TargetIndexer{
+    /** Size of a cell of the enemy grid, in world units. */
+    public static final float cellSize = tilesize * 16f;
+
+    private static final Boolf<Unit> airUnits = e -> !e.dead() && !e.isGrounded(), groundUnits = e -> !e.dead() && e.isGrounded(), allUnits = e -> !e.dead();
+    private static final Boolf<Building> allBuildings = b -> true;
+
+    private int width, height;
+    /** Cells that may contain enemy units of each team, by team ID. */
+    private Bits[] enemies = new Bits[Team.all.length];
+    /** Value of {@link Teams#updates} when the enemies of each team were binned. */
+    private int[] binned = new int[Team.all.length];
+    /** Teams that the bins were created for; bins are discarded when it changes. */
+    private @Nullable Teams teams;
+
+    /** Amount of target queries, and how many of them had no enemies in range. */
+    public int queries, skipped;
+
+    public TargetIndexer(){
+        Events.on(WorldLoadEvent.class, e -> reset());
+    }
+
+    /**
+     * Finds the target that a turret with these properties would shoot at: the best enemy unit according to the sort,
+     * or if there is none, the enemy building with the highest priority.
+     * Dead units and units the turret can't target are ignored.
+     */
+    public @Nullable Teamc findTarget(Team team, float x, float y, float range, boolean air, boolean ground, Sortf sort){
+        queries++;
+
+        if(team == Team.derelict || (!air && !ground)){
+            return null;
+        }
+
+        boolean units = anyEnemies(team, x, y, range), buildings = ground && indexer.anyEnemyTiles(team, x, y, range);
+
+        if(!units && !buildings){
+            skipped++;
+            return null;
+        }
+
+        if(units){
+            Unit unit = Units.bestEnemy(team, x, y, range, air && ground ? allUnits : air ? airUnits : groundUnits, sort);
+            if(unit != null) return unit;
+        }
+
+        return buildings ? indexer.findEnemyTile(team, x, y, range, allBuildings) : null;
+    }
+
+    /**
+     * @return whether there may be enemy units of this team in range.
+     * If this returns false, queries of enemy units such as {@link Units#bestEnemy} and {@link Units#closestEnemy} return null.
+     */
+    public boolean anyEnemies(Team team, float x, float y, float range){
+        Bits bits = bin(team);
+        int minx = cell(x - range, width), miny = cell(y - range, height), maxx = cell(x + range, width), maxy = cell(y + range, height);
+
+        for(int cy = miny; cy <= maxy; cy++){
+            for(int cx = minx; cx <= maxx; cx++){
+                if(bits.get(cx + cy * width)) return true;
+            }
+        }
+        return false;
+    }
+
+    /** @return the cells that may contain enemy units of this team. Unit indices only change on team updates, so this is done once per update. */
+    private Bits bin(Team team){
+        if(teams != state.teams){
+            reset();
+            teams = state.teams;
+        }
+
+        Bits bits = enemies[team.id];
+        if(bits == null){
+            bits = enemies[team.id] = new Bits(width * height);
+        }else if(binned[team.id] == teams.updates){
+            return bits;
+        }
+
+        bits.clear();
+        binned[team.id] = teams.updates;
+
+        //same teams as Units.nearbyEnemies; derelict units are never targeted
+        Seq<TeamData> present = teams.present;
+        for(int i = 0; i < present.size; i++){
+            TeamData data = present.items[i];
+            if(data.team != team && data.team != Team.derelict && data.tree != null){
+                data.tree.markOccupied(bits, cellSize, width, height);
+            }
+        }
+
+        return bits;
+    }
+
+    private void reset(){
+        width = Math.max(Mathf.ceil(world.unitWidth() / cellSize), 1);
+        height = Math.max(Mathf.ceil(world.unitHeight() / cellSize), 1);
+        enemies = new Bits[Team.all.length];
+        binned = new int[Team.all.length];
+        teams = null;
+    }
+
+    private static int cell(float value, int cells){
+        return Mathf.clamp((int)Math.floor(value / cellSize), 0, cells - 1);
+    }
+}
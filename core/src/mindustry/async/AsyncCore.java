@@ -2,6 +2,7 @@ package mindustry.async;
 
 import arc.*;
 import arc.struct.*;
+import arc.util.*;
 import arc.util.async.*;
 import mindustry.game.EventType.*;
 
@@ -18,6 +19,13 @@ public class AsyncCore{
     //futures to be awaited
     private final Seq<Future<?>> futures = new Seq<>();
 
+    /** Maximum amount of threads used to resolve unit physics. Takes effect when the next world loads. */
+    public int physicsThreads = defaultPhysicsThreads();
+    /** Time each process took in its last frame, in nanoseconds. Indices match {@link #processes}. */
+    public long[] processTimes = {};
+    /** Time the main thread spent waiting for processes to finish in the last frame, in nanoseconds. */
+    public long waitTime;
+
     private ExecutorService executor;
 
     public AsyncCore(){
@@ -55,10 +63,22 @@ public class AsyncCore{
                 });
             }
 
+            if(processTimes.length != processes.size){
+                processTimes = new long[processes.size];
+            }
+
             //submit all tasks
-            for(AsyncProcess p : processes){
+            for(int i = 0; i < processes.size; i++){
+                AsyncProcess p = processes.get(i);
+                int index = i;
+                processTimes[i] = 0;
+
                 if(p.shouldProcess()){
-                    futures.add(executor.submit(p::process));
+                    futures.add(executor.submit(() -> {
+                        long start = Time.nanos();
+                        p.process();
+                        processTimes[index] = Time.timeSinceNanos(start);
+                    }));
                 }
             }
         }
@@ -66,7 +86,9 @@ public class AsyncCore{
 
     public void end(){
         if(state.isPlaying()){
+            long start = Time.nanos();
             complete();
+            waitTime = Time.timeSinceNanos(start);
 
             //sync end (flush data)
             for(AsyncProcess p : processes){
@@ -75,6 +97,16 @@ public class AsyncCore{
         }
     }
 
+    /** @return the first process of the specified type, or null if there is none. */
+    @SuppressWarnings("unchecked")
+    public @Nullable <T extends AsyncProcess> T process(Class<T> type){
+        return (T)processes.find(p -> p.getClass() == type);
+    }
+
+    public static int defaultPhysicsThreads(){
+        return Math.max(Math.min(OS.cores - 1, 4), 1);
+    }
+
     private void complete(){
         //wait for all threads to stop processing
         for(Future future : futures){
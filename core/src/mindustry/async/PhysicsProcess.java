@@ -4,11 +4,18 @@ import arc.math.*;
 import arc.math.geom.*;
 import arc.math.geom.QuadTree.*;
 import arc.struct.*;
+import arc.util.*;
+import arc.util.async.*;
 import mindustry.*;
 import mindustry.async.PhysicsProcess.PhysicsWorld.*;
 import mindustry.entities.*;
 import mindustry.gen.*;
 
+import java.util.*;
+import java.util.concurrent.*;
+
+import static mindustry.Vars.*;
+
 public class PhysicsProcess implements AsyncProcess{
     private static final int
         layers = 3,
@@ -17,6 +24,8 @@ public class PhysicsProcess implements AsyncProcess{
         layerFlying = 2;
 
     private PhysicsWorld physics;
+    private @Nullable ExecutorService executor;
+    private int executorThreads;
     private Seq<PhysicRef> refs = new Seq<>(false);
     //currently only enabled for units
     private EntityGroup<Unit> group = Groups.unit;
@@ -106,7 +115,30 @@ public class PhysicsProcess implements AsyncProcess{
     public void init(){
         reset();
 
-        physics = new PhysicsWorld(Vars.world.getQuadBounds(new Rect()));
+        //clients only resolve their own unit, so a pool would never be used
+        int threads = Vars.net.client() ? 1 : Math.max(asyncCore.physicsThreads, 1);
+
+        if(executor != null && executorThreads != threads){
+            executor.shutdown();
+            executor = null;
+        }
+
+        if(executor == null && threads > 1){
+            executor = Executors.newFixedThreadPool(threads, r -> {
+                Thread thread = new Thread(r, "Physics-Worker");
+                thread.setDaemon(true);
+                thread.setUncaughtExceptionHandler((t, e) -> Threads.throwAppException(e));
+                return thread;
+            });
+            executorThreads = threads;
+        }
+
+        physics = new PhysicsWorld(Vars.world.getQuadBounds(new Rect()), executor, threads);
+    }
+
+    /** @return the physics world, or null if no world is loaded. */
+    public @Nullable PhysicsWorld physics(){
+        return physics;
     }
 
     public static class PhysicRef{
@@ -124,17 +156,38 @@ public class PhysicsProcess implements AsyncProcess{
     public static class PhysicsWorld{
         //how much to soften movement by
         private static final float scl = 1.25f;
+        //minimum size of a grid cell, in world units
+        private static final float minCellSize = tilesize * 4f;
+        //minimum amount of bodies solved by one task
+        private static final int minChunkSize = 256;
 
-        private final QuadTree<PhysicsBody>[] trees = new QuadTree[layers];
         private final Seq<PhysicsBody> bodies = new Seq<>(false, 16, PhysicsBody.class);
-        private final Seq<PhysicsBody> seq = new Seq<>(PhysicsBody.class);
-        private final Rect rect = new Rect();
-        private final Vec2 vec = new Vec2();
+        private final Rect bounds;
+        private final @Nullable ExecutorService executor;
+        private final int threads;
+        private final Seq<Callable<Object>> tasks = new Seq<>();
+
+        //bodies sorted by grid cell; cell i contains sorted[cellStarts[i]] to sorted[cellStarts[i + 1] - 1]
+        private PhysicsBody[] sorted = {};
+        private int[] cellStarts = {};
+        private int gridWidth, gridHeight;
+        private float cellSize;
+
+        /** Time taken by the last update to sort bodies and to resolve overlaps, in nanoseconds. */
+        public long sortTime, solveTime;
 
         public PhysicsWorld(Rect bounds){
-            for(int i = 0; i < layers; i++){
-                trees[i] = new QuadTree<>(new Rect(bounds));
-            }
+            this(bounds, null, 1);
+        }
+
+        /**
+         * @param executor pool used to resolve overlaps; if null, everything is done in the calling thread.
+         * @param threads the maximum amount of tasks submitted to the executor at once.
+         */
+        public PhysicsWorld(Rect bounds, @Nullable ExecutorService executor, int threads){
+            this.bounds = new Rect(bounds);
+            this.executor = executor;
+            this.threads = threads;
         }
 
         public void add(PhysicsBody body){
@@ -145,59 +198,145 @@ public class PhysicsProcess implements AsyncProcess{
             bodies.remove(body);
         }
 
+        public int size(){
+            return bodies.size;
+        }
+
+        /**
+         * Resolves overlaps between all bodies. Every body computes its own displacement from the positions at the start of the step,
+         * and displacements are only applied once all bodies are solved, so the result does not depend on the amount of threads.
+         */
         public void update(){
-            for(int i = 0; i < layers; i++){
-                trees[i].clear();
+            long start = Time.nanos();
+            sort();
+            long sorted = Time.nanos();
+            sortTime = sorted - start;
+
+            int chunks = executor == null ? 1 : Math.min(threads, bodies.size / minChunkSize);
+
+            if(chunks <= 1){
+                solve(0, bodies.size);
+            }else{
+                tasks.clear();
+                for(int i = 0; i < chunks; i++){
+                    int from = bodies.size * i / chunks, to = bodies.size * (i + 1) / chunks;
+                    tasks.add(() -> {
+                        solve(from, to);
+                        return null;
+                    });
+                }
+
+                try{
+                    for(Future<Object> future : executor.invokeAll(tasks.list())){
+                        future.get();
+                    }
+                }catch(InterruptedException e){
+                    Thread.currentThread().interrupt();
+                    return;
+                }catch(ExecutionException e){
+                    throw new RuntimeException(e.getCause());
+                }
             }
 
+            //don't keep removed bodies reachable until the next step overwrites them
+            Arrays.fill(sorted, 0, bodies.size, null);
+
             for(int i = 0; i < bodies.size; i++){
                 PhysicsBody body = bodies.items[i];
-                body.collided = false;
-                trees[body.layer].insert(body);
+                body.x += body.dx;
+                body.y += body.dy;
+            }
+
+            solveTime = Time.nanos() - sorted;
+        }
+
+        /** Sorts all bodies into a uniform grid per layer. Cells are at least as large as the largest body, so overlaps are always in neighbouring cells. */
+        private void sort(){
+            float maxRadius = 0f;
+            for(int i = 0; i < bodies.size; i++){
+                maxRadius = Math.max(maxRadius, bodies.items[i].radius);
+            }
+
+            cellSize = Math.max(maxRadius * 2f, minCellSize);
+            gridWidth = Math.max(Mathf.ceil(bounds.width / cellSize), 1);
+            gridHeight = Math.max(Mathf.ceil(bounds.height / cellSize), 1);
+
+            int cells = gridWidth * gridHeight * layers;
+            if(cellStarts.length < cells + 1){
+                cellStarts = new int[cells + 1];
+            }else{
+                Arrays.fill(cellStarts, 0, cells + 1, 0);
             }
 
+            if(sorted.length < bodies.size){
+                sorted = new PhysicsBody[bodies.size];
+            }
+
+            //counting sort; bodies keep their relative order inside each cell
             for(int i = 0; i < bodies.size; i++){
                 PhysicsBody body = bodies.items[i];
+                body.cell = body.layer * gridWidth * gridHeight + cellX(body.x) + cellY(body.y) * gridWidth;
+                cellStarts[body.cell]++;
+            }
 
-                //for clients, the only body that collides is the local one; all other physics simulations are handled by the server.
-                if(!body.local) continue;
+            for(int i = 1; i <= cells; i++){
+                cellStarts[i] += cellStarts[i - 1];
+            }
 
-                body.hitbox(rect);
+            for(int i = bodies.size - 1; i >= 0; i--){
+                PhysicsBody body = bodies.items[i];
+                sorted[--cellStarts[body.cell]] = body;
+            }
+        }
 
-                seq.size = 0;
-                trees[body.layer].intersect(rect, seq);
+        private void solve(int from, int to){
+            for(int i = from; i < to; i++){
+                PhysicsBody body = bodies.items[i];
+                body.dx = body.dy = 0f;
 
-                for(int j = 0; j < seq.size; j++){
-                    PhysicsBody other = seq.items[j];
+                //for clients, the only body that collides is the local one; all other physics simulations are handled by the server.
+                if(!body.local) continue;
 
-                    if(other == body || other.collided) continue;
+                int cx = cellX(body.x), cy = cellY(body.y), base = body.layer * gridWidth * gridHeight;
 
-                    float rs = body.radius + other.radius;
-                    float dst = Mathf.dst(body.x, body.y, other.x, other.y);
+                for(int y = Math.max(cy - 1, 0); y <= Math.min(cy + 1, gridHeight - 1); y++){
+                    for(int x = Math.max(cx - 1, 0); x <= Math.min(cx + 1, gridWidth - 1); x++){
+                        int cell = base + x + y * gridWidth;
 
-                    if(dst < rs){
-                        vec.set(body.x - other.x, body.y - other.y).setLength(rs - dst);
-                        float ms = body.mass + other.mass;
-                        float m1 = other.mass / ms, m2 = body.mass / ms;
+                        for(int j = cellStarts[cell], end = cellStarts[cell + 1]; j < end; j++){
+                            PhysicsBody other = sorted[j];
+                            if(other == body) continue;
 
-                        //first body is always local due to guard check above
-                        body.x += vec.x * m1 / scl;
-                        body.y += vec.y * m1 / scl;
+                            float rs = body.radius + other.radius;
+                            float dst = Mathf.dst(body.x, body.y, other.x, other.y);
 
-                        if(other.local){
-                            other.x -= vec.x * m2 / scl;
-                            other.y -= vec.y * m2 / scl;
+                            if(dst < rs && dst > 0f){
+                                //each body is pushed away by its share of the overlap; the other body handles its own share
+                                float push = (rs - dst) / dst * (other.mass / (body.mass + other.mass)) / scl;
+                                body.dx += (body.x - other.x) * push;
+                                body.dy += (body.y - other.y) * push;
+                            }
                         }
                     }
                 }
-                body.collided = true;
             }
         }
 
+        private int cellX(float x){
+            return Mathf.clamp((int)((x - bounds.x) / cellSize), 0, gridWidth - 1);
+        }
+
+        private int cellY(float y){
+            return Mathf.clamp((int)((y - bounds.y) / cellSize), 0, gridHeight - 1);
+        }
+
         public static class PhysicsBody implements QuadTreeObject{
             public float x, y, radius, mass;
             public int layer = 0;
-            public boolean collided = false, local = true;
+            public boolean local = true;
+
+            float dx, dy;
+            int cell;
 
             @Override
             public void hitbox(Rect out){
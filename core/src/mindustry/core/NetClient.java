@@ -372,6 +372,12 @@ public class NetClient implements ApplicationListener{
                 Syncc entity = Groups.sync.getByID(id);
                 boolean add = false, created = false;
 
+                //state is the same as in the last snapshot, nothing to read
+                if(typeID == NetServer.syncUnchanged){
+                    if(entity != null) entity.readSyncUnchanged();
+                    continue;
+                }
+
                 if(entity == null && id == player.id()){
                     entity = player;
                     add = true;
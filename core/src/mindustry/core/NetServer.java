@@ -40,9 +40,16 @@ public class NetServer implements ApplicationListener{
     private static final FloatBuffer fbuffer = FloatBuffer.allocate(20);
     private static final Writes dataWrites = new Writes(null);
     private static final Vec2 vector = new Vec2();
+    private static final Rect viewRect = new Rect();
     /** If a player goes away of their server-side coordinates by this distance, they get teleported back. */
     private static final float correctDist = tilesize * 14f;
 
+    /**
+     * Written in place of an entity's type ID in snapshots when its state has not changed since it was last sent.
+     * The class ID with the same byte value is reserved by {@link #reserveSyncIds()}.
+     */
+    public static final byte syncUnchanged = -1;
+
     public final Administration admins = new Administration();
     public final CommandHandler clientCommands = new CommandHandler("/");
     public TeamAssigner assigner = (player, players) -> {
@@ -93,6 +100,15 @@ public class NetServer implements ApplicationListener{
         }
     };
 
+    /** Total bytes of entity snapshot data sent to all players. */
+    public long snapshotBytesSent;
+    /** Total amount of entities written to or skipped from entity snapshots by interest management. */
+    public long snapshotEntitiesSent, snapshotEntitiesSkipped;
+    /** Total amount of entities written as unchanged markers by delta snapshots. */
+    public long snapshotEntitiesUnchanged;
+    /** Time spent on the last entity/block sync, in nanoseconds. */
+    public long lastSyncTime;
+
     private boolean closing = false;
     private Interval timer = new Interval();
 
@@ -103,6 +119,19 @@ public class NetServer implements ApplicationListener{
     private ReusableByteOutStream syncStream = new ReusableByteOutStream();
     /** Data stream for writing player sync data to. */
     private DataOutputStream dataStream = new DataOutputStream(syncStream);
+    /** Sync state of every entity in Groups.sync, written once per frame and shared by all entity snapshots. */
+    private ReusableByteOutStream syncCache = new ReusableByteOutStream();
+    private DataOutputStream syncCacheStream = new DataOutputStream(syncCache);
+    /** Start offset of each entity in the sync cache, in Groups.sync order, followed by the end offset. */
+    private IntSeq syncOffsets = new IntSeq();
+    /** ID and state version of each entity in the sync cache, in Groups.sync order. */
+    private IntSeq syncIds = new IntSeq(), syncVersions = new IntSeq();
+    /** Last written sync state of each entity, and a version that is incremented whenever it changes, by entity ID. */
+    private IntMap<byte[]> syncStates = new IntMap<>();
+    private IntIntMap stateVersions = new IntIntMap();
+    private long syncCacheFrame = -1;
+    /** Shared compressed world data for joining players. */
+    private WorldStreamCache worldCache = new WorldStreamCache(this::sendWorldData);
     /** Packet handlers for custom types of messages. */
     private ObjectMap<String, Seq<Cons2<Player, String>>> customPacketHandlers = new ObjectMap<>();
 
@@ -197,6 +226,7 @@ public class NetServer implements ApplicationListener{
                 info.adminUsid = packet.usid;
                 info.lastName = packet.name;
                 info.id = packet.uuid;
+                admins.updateInfo(info);
                 admins.save();
                 Call.infoMessage(con, "You are not whitelisted here.");
                 info("&lcDo &lywhitelist-add @&lc to whitelist the player &lb'@'", packet.uuid, packet.name);
@@ -260,6 +290,7 @@ public class NetServer implements ApplicationListener{
             //save admin ID but don't overwrite it
             if(!player.admin && !info.admin){
                 info.adminUsid = packet.usid;
+                admins.updateInfo(info);
             }
 
             try{
@@ -527,15 +558,22 @@ public class NetServer implements ApplicationListener{
         return assigner.assign(current, players);
     }
 
+    /** Sends the world to a player. The map data is compressed asynchronously and shared with other players joining at the same time. */
     public void sendWorldData(Player player){
-        ByteArrayOutputStream stream = new ByteArrayOutputStream();
-        DeflaterOutputStream def = new FastDeflaterOutputStream(stream);
-        NetworkIO.writeWorld(player, def);
+        worldCache.send(player);
+    }
+
+    void sendWorldData(Player player, byte[][] parts){
         WorldStream data = new WorldStream();
-        data.stream = new ByteArrayInputStream(stream.toByteArray());
+        //the shared world data is not copied for each player
+        data.parts = parts;
         player.con.sendStream(data);
 
-        debug("Packed @ bytes of world data.", stream.size());
+        int size = 0;
+        for(byte[] part : parts){
+            size += part.length;
+        }
+        debug("Packed @ bytes of world data.", size);
     }
 
     public void addPacketHandler(String type, Cons2<Player, String> handler){
@@ -866,6 +904,10 @@ public class NetServer implements ApplicationListener{
 
             sync();
         }
+
+        if(net.server()){
+            net.flushBatches();
+        }
     }
 
     /** Should only be used on the headless backend. */
@@ -940,17 +982,59 @@ public class NetServer implements ApplicationListener{
         syncStream.reset();
 
         int sent = 0;
+        boolean interest = Config.snapshotInterest.bool();
+        int farSpacing = Math.max(Config.snapshotFarSpacing.num(), 1);
+
+        if(interest){
+            NetConnection con = player.con;
+            float margin = Config.snapshotViewMargin.num() * tilesize;
+            viewRect.setCentered(con.viewX, con.viewY, con.viewWidth + margin * 2f, con.viewHeight + margin * 2f);
+        }
+
+        cacheSyncStates();
+
+        byte[] cached = syncCache.getBytes();
+        boolean delta = Config.snapshotDelta.bool();
+        int keyframeSpacing = Math.max(Config.snapshotKeyframeSpacing.num(), 1);
+        IntIntMap baselines = player.con.syncBaselines;
+        int index = -1;
 
         for(Syncc entity : Groups.sync){
+            index++;
+
+            if(interest && !isRelevant(player, entity, farSpacing)){
+                snapshotEntitiesSkipped++;
+                continue;
+            }
+
+            int id = entity.id();
+
             //write all entities now
-            dataStream.writeInt(entity.id()); //write id
-            dataStream.writeByte(entity.classId()); //write type ID
-            entity.writeSync(Writes.get(dataStream)); //write entity
+            dataStream.writeInt(id); //write id
+
+            //the group can change during a sync when players disconnect; don't use the cache in that case
+            if(index >= syncIds.size || syncIds.items[index] != id){
+                dataStream.writeByte(entity.classId()); //write type ID
+                entity.writeSync(Writes.get(dataStream)); //write entity
+                baselines.remove(id, 0);
+            //snapshots are unreliable, so unchanged entities still get their full state sent periodically
+            }else if(delta && baselines.get(id, 0) == syncVersions.items[index] && (player.con.snapshotsSent + id) % keyframeSpacing != 0){
+                dataStream.writeByte(syncUnchanged);
+                snapshotEntitiesUnchanged++;
+            }else{
+                int offset = syncOffsets.items[index];
+                dataStream.writeByte(entity.classId()); //write type ID
+                dataStream.write(cached, offset, syncOffsets.items[index + 1] - offset); //write entity
+
+                if(delta) baselines.put(id, syncVersions.items[index]);
+            }
 
             sent++;
+            snapshotEntitiesSent++;
 
             if(syncStream.size() > maxSnapshotSize){
                 dataStream.close();
+                snapshotBytesSent += syncStream.size();
                 Call.entitySnapshot(player.con, (short)sent, syncStream.toByteArray());
                 sent = 0;
                 syncStream.reset();
@@ -960,12 +1044,103 @@ public class NetServer implements ApplicationListener{
         if(sent > 0){
             dataStream.close();
 
+            snapshotBytesSent += syncStream.size();
             Call.entitySnapshot(player.con, (short)sent, syncStream.toByteArray());
         }
 
+        //clean up baselines of entities that no longer exist
+        if(player.con.snapshotsSent % 60 == 0 && baselines.size > 0){
+            IntSeq ids = baselines.keys().toArray();
+            for(int i = 0; i < ids.size; i++){
+                if(Groups.sync.getByID(ids.items[i]) == null){
+                    baselines.remove(ids.items[i], 0);
+                }
+            }
+        }
+
         player.con.snapshotsSent++;
     }
 
+    /** Writes the sync state of every entity once per frame, so it does not get re-serialized for each player. */
+    void cacheSyncStates() throws IOException{
+        if(syncCacheFrame == Core.graphics.getFrameId() && syncIds.size == Groups.sync.size()) return;
+        syncCacheFrame = Core.graphics.getFrameId();
+
+        syncCache.reset();
+        syncOffsets.clear();
+        syncIds.clear();
+        syncVersions.clear();
+
+        Writes write = Writes.get(syncCacheStream);
+        for(Syncc entity : Groups.sync){
+            syncOffsets.add(syncCache.size());
+            syncIds.add(entity.id());
+            entity.writeSync(write);
+        }
+        syncOffsets.add(syncCache.size());
+
+        //states are compared byte by byte, so a changed entity is never mistaken for an unchanged one
+        byte[] bytes = syncCache.getBytes();
+        for(int i = 0; i < syncIds.size; i++){
+            int id = syncIds.items[i], from = syncOffsets.items[i], to = syncOffsets.items[i + 1];
+            byte[] last = syncStates.get(id);
+
+            if(last == null || !equal(last, bytes, from, to)){
+                byte[] state = new byte[to - from];
+                System.arraycopy(bytes, from, state, 0, state.length);
+                syncStates.put(id, state);
+                stateVersions.put(id, stateVersions.get(id, 0) + 1);
+            }
+            syncVersions.add(stateVersions.get(id, 0));
+        }
+
+        //entity IDs are never reused, so states of removed entities can be discarded
+        if(syncStates.size > syncIds.size * 2){
+            IntSeq ids = syncStates.keys().toArray();
+            for(int i = 0; i < ids.size; i++){
+                if(Groups.sync.getByID(ids.items[i]) == null){
+                    syncStates.remove(ids.items[i]);
+                    stateVersions.remove(ids.items[i], 0);
+                }
+            }
+        }
+    }
+
+    private static boolean equal(byte[] state, byte[] bytes, int from, int to){
+        if(state.length != to - from) return false;
+        for(int i = 0; i < state.length; i++){
+            if(state[i] != bytes[from + i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Reserves the class ID that has the same byte value as {@link #syncUnchanged}, so that no entity type can be registered with it.
+     * Must be called before any entity types of mods are registered.
+     */
+    public static void reserveSyncIds(){
+        int id = syncUnchanged & 0xff;
+        if(EntityMapping.idMap[id] == null){
+            EntityMapping.idMap[id] = () -> {
+                throw new IllegalArgumentException("Class ID " + id + " is reserved for unchanged entities in snapshots.");
+            };
+        }
+    }
+
+    /**
+     * @return whether an entity should be written to this player's snapshot for the current sync.
+     * Requires {@link #viewRect} to be set to the player's (expanded) view.
+     * */
+    boolean isRelevant(Player player, Syncc entity, int farSpacing){
+        //players are always synced, as they carry names, admin status and other global information
+        if(entity instanceof Player || entity == player.unit() || !(entity instanceof Posc pos)) return true;
+
+        if(viewRect.contains(pos.x(), pos.y())) return true;
+
+        //far away entities are still updated periodically; offset by ID so they don't all get sent in the same snapshot
+        return (player.con.snapshotsSent + entity.id()) % farSpacing == 0;
+    }
+
     String fixName(String name){
         name = name.trim().replace("\n", "").replace("\t", "");
         if(name.equals("[") || name.equals("]")){
@@ -1016,6 +1191,8 @@ public class NetServer implements ApplicationListener{
     }
 
     void sync(){
+        long start = Time.nanos();
+
         try{
             Groups.player.each(p -> !p.isLocal(), player -> {
                 if(player.con == null || !player.con.isConnected()){
@@ -1043,6 +1220,8 @@ public class NetServer implements ApplicationListener{
         }catch(IOException e){
             Log.err(e);
         }
+
+        lastSyncTime = Time.timeSinceNanos(start);
     }
 
     public interface TeamAssigner{
@@ -26,7 +26,7 @@ public class EntityCollisions{
     //entity collisions
     private Seq<Hitboxc> arrOut = new Seq<>(Hitboxc.class);
     private Cons<Hitboxc> hitCons = this::updateCollision;
-    private Cons<QuadTree> treeCons = tree -> tree.intersect(r2, arrOut);
+    private Cons<EntityGrid> treeCons = tree -> tree.intersect(r2, arrOut);
 
     public void moveCheck(Hitboxc entity, float deltax, float deltay, SolidPred solidCheck){
         if(!solidCheck.solid(entity.tileX(), entity.tileY())){
@@ -119,13 +119,15 @@ public class EntityCollisions{
 
     @SuppressWarnings("unchecked")
     public <T extends Hitboxc> void updatePhysics(EntityGroup<T> group){
-        QuadTree tree = group.tree();
-        tree.clear();
+        EntityGrid tree = group.tree();
 
         group.each(s -> {
             s.updateLastPosition();
-            tree.insert(s);
+            tree.update(s);
         });
+
+        //entities that left the group since the last update
+        tree.removeStale();
     }
 
     public static boolean legsSolid(int x, int y){
@@ -0,0 +1,258 @@
+package mindustry.entities;
+
+import arc.func.*;
+import arc.math.*;
+import arc.math.geom.*;
+import arc.struct.*;
+import mindustry.gen.*;
+
+import static mindustry.Vars.*;
+
+/**
+ * Uniform spatial grid of entities, bucketed by the cell that contains their center.
+ * Unlike a quadtree, it is not rebuilt every frame: an entity only moves between buckets when it crosses a cell boundary.
+ * Queries are expanded by half of the largest hitbox in the grid, so entities that overlap neighbouring cells are still found.
+ * <p>
+ * Usage: call {@link #update(Hitboxc)} for every entity that should be in the grid, then {@link #removeStale()}
+ * to remove entities that were not updated since the last call.
+ */
+@SuppressWarnings("unchecked")
+public class EntityGrid<T extends Hitboxc>{
+    public static final float defaultCellSize = tilesize * 8f;
+
+    private final Rect hitrect = new Rect();
+    private final float cellSize;
+    private final float x, y;
+    private final int width, height;
+    private final Seq<T>[] cells;
+
+    /** Maps entity IDs to their slot in the arrays below. */
+    private final IntIntMap slots = new IntIntMap();
+    private final Seq<T> entities = new Seq<>(false, 32, Hitboxc.class);
+    private final IntSeq entityCells = new IntSeq(false, 32);
+    private final IntSeq entityStamps = new IntSeq(false, 32);
+
+    private int stamp;
+    private float maxSize;
+
+    public EntityGrid(Rect bounds){
+        this(bounds, defaultCellSize);
+    }
+
+    public EntityGrid(Rect bounds, float cellSize){
+        this.cellSize = cellSize;
+        this.x = bounds.x;
+        this.y = bounds.y;
+        this.width = Math.max((int)Math.ceil(bounds.width / cellSize), 1);
+        this.height = Math.max((int)Math.ceil(bounds.height / cellSize), 1);
+        this.cells = new Seq[width * height];
+    }
+
+    /** Adds an entity to the grid, or moves it to a different cell if it has crossed a cell boundary. */
+    public void update(T entity){
+        int cell = cell(entity.getX(), entity.getY());
+        int slot = slots.get(entity.id(), -1);
+
+        if(slot == -1 || entities.items[slot] != entity){
+            //a different entity with this ID was in the grid; discard it
+            if(slot != -1) remove(slot);
+
+            slots.put(entity.id(), entities.size);
+            entities.add(entity);
+            entityCells.add(cell);
+            entityStamps.add(stamp);
+            bucket(cell).add(entity);
+        }else{
+            entityStamps.items[slot] = stamp;
+
+            int last = entityCells.items[slot];
+            if(last != cell){
+                cells[last].remove(entity, true);
+                bucket(cell).add(entity);
+                entityCells.items[slot] = cell;
+            }
+        }
+
+        maxSize = Math.max(maxSize, entity.hitSize());
+    }
+
+    /** Removes all entities that have not been updated since the last call to this method. */
+    public void removeStale(){
+        for(int i = entities.size - 1; i >= 0; i--){
+            if(entityStamps.items[i] != stamp){
+                remove(i);
+            }
+        }
+        stamp++;
+    }
+
+    /** Removes an entity from the grid immediately. */
+    public void remove(T entity){
+        int slot = slots.get(entity.id(), -1);
+        if(slot != -1 && entities.items[slot] == entity){
+            remove(slot);
+        }
+    }
+
+    public void clear(){
+        for(Seq<T> cell : cells){
+            if(cell != null) cell.clear();
+        }
+        slots.clear();
+        entities.clear();
+        entityCells.clear();
+        entityStamps.clear();
+        maxSize = 0f;
+    }
+
+    public int size(){
+        return entities.size;
+    }
+
+    /** Calls the consumer for every entity whose hitbox overlaps the rectangle. */
+    public void intersect(float x, float y, float width, float height, Cons<? super T> out){
+        if(entities.isEmpty()) return;
+
+        float pad = maxSize / 2f;
+        int minx = cellX(x - pad), miny = cellY(y - pad), maxx = cellX(x + width + pad), maxy = cellY(y + height + pad);
+
+        for(int cy = miny; cy <= maxy; cy++){
+            for(int cx = minx; cx <= maxx; cx++){
+                Seq<T> cell = cells[cx + cy * this.width];
+                if(cell == null) continue;
+
+                //entities may be removed from the cell by the consumer; iterate backwards
+                for(int i = cell.size - 1; i >= 0; i--){
+                    if(i >= cell.size) continue;
+                    T entity = cell.items[i];
+                    entity.hitbox(hitrect);
+                    if(hitrect.overlaps(x, y, width, height)){
+                        out.get(entity);
+                    }
+                }
+            }
+        }
+    }
+
+    public void intersect(Rect rect, Cons<? super T> out){
+        intersect(rect.x, rect.y, rect.width, rect.height, out);
+    }
+
+    /** Adds every entity whose hitbox overlaps the rectangle to the output sequence. */
+    public void intersect(Rect rect, Seq<? super T> out){
+        if(entities.isEmpty()) return;
+
+        float pad = maxSize / 2f;
+        int minx = cellX(rect.x - pad), miny = cellY(rect.y - pad), maxx = cellX(rect.x + rect.width + pad), maxy = cellY(rect.y + rect.height + pad);
+
+        for(int cy = miny; cy <= maxy; cy++){
+            for(int cx = minx; cx <= maxx; cx++){
+                Seq<T> cell = cells[cx + cy * width];
+                if(cell == null) continue;
+
+                for(int i = 0; i < cell.size; i++){
+                    T entity = cell.items[i];
+                    entity.hitbox(hitrect);
+                    if(hitrect.overlaps(rect)){
+                        out.add(entity);
+                    }
+                }
+            }
+        }
+    }
+
+    /** @return whether any entity's hitbox overlaps the rectangle. */
+    public boolean any(float x, float y, float width, float height){
+        if(entities.isEmpty()) return false;
+
+        float pad = maxSize / 2f;
+        int minx = cellX(x - pad), miny = cellY(y - pad), maxx = cellX(x + width + pad), maxy = cellY(y + height + pad);
+
+        for(int cy = miny; cy <= maxy; cy++){
+            for(int cx = minx; cx <= maxx; cx++){
+                Seq<T> cell = cells[cx + cy * this.width];
+                if(cell == null) continue;
+
+                for(int i = 0; i < cell.size; i++){
+                    cell.items[i].hitbox(hitrect);
+                    if(hitrect.overlaps(x, y, width, height)){
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sets the bits of the cells of a coarser grid, with its origin at (0, 0), that a query must overlap to return any entity of this grid.
+     * Coarse cells are indexed by x + y * width, and positions outside of the coarse grid are clamped to its edges.
+     */
+    public void markOccupied(Bits out, float size, int width, int height){
+        //one unit of margin, as cell bounds are not computed exactly like query cells
+        float pad = maxSize / 2f + 1f;
+
+        for(int i = 0; i < entities.size; i++){
+            int cell = entityCells.items[i], cx = cell % this.width, cy = cell / this.width;
+
+            //edge cells also hold entities outside of the bounds
+            int minx = cx == 0 ? 0 : coarse(x + cx * cellSize - pad, size, width);
+            int miny = cy == 0 ? 0 : coarse(y + cy * cellSize - pad, size, height);
+            int maxx = cx == this.width - 1 ? width - 1 : coarse(x + (cx + 1) * cellSize + pad, size, width);
+            int maxy = cy == this.height - 1 ? height - 1 : coarse(y + (cy + 1) * cellSize + pad, size, height);
+
+            for(int qy = miny; qy <= maxy; qy++){
+                for(int qx = minx; qx <= maxx; qx++){
+                    out.set(qx + qy * width);
+                }
+            }
+        }
+    }
+
+    public void getObjects(Seq<? super T> out){
+        out.addAll(entities);
+    }
+
+    private void remove(int slot){
+        T entity = entities.items[slot];
+        cells[entityCells.items[slot]].remove(entity, true);
+        slots.remove(entity.id(), 0);
+
+        //move the last entity into the freed slot
+        int last = entities.size - 1;
+        if(slot != last){
+            T moved = entities.items[last];
+            entities.items[slot] = moved;
+            entityCells.items[slot] = entityCells.items[last];
+            entityStamps.items[slot] = entityStamps.items[last];
+            slots.put(moved.id(), slot);
+        }
+
+        entities.pop();
+        entityCells.pop();
+        entityStamps.pop();
+    }
+
+    private Seq<T> bucket(int cell){
+        if(cells[cell] == null) cells[cell] = new Seq<>(false, 4, Hitboxc.class);
+        return cells[cell];
+    }
+
+    private static int coarse(float value, float size, int cells){
+        return Mathf.clamp((int)Math.floor(value / size), 0, cells - 1);
+    }
+
+    //positions outside the bounds are clamped to the edge cells, so no entity is ever lost
+
+    private int cell(float wx, float wy){
+        return cellX(wx) + cellY(wy) * width;
+    }
+
+    private int cellX(float wx){
+        return Mathf.clamp((int)((wx - x) / cellSize), 0, width - 1);
+    }
+
+    private int cellY(float wy){
+        return Mathf.clamp((int)((wy - y) / cellSize), 0, height - 1);
+    }
+}
@@ -21,7 +21,7 @@ public class EntityGroup<T extends Entityc> implements Iterable<T>{
     private final Rect viewport = new Rect();
     private final Rect intersectRect = new Rect();
     private IntMap<T> map;
-    private QuadTree tree;
+    private EntityGrid tree;
     private boolean clearing;
 
     private int index;
@@ -34,7 +34,7 @@ public class EntityGroup<T extends Entityc> implements Iterable<T>{
         array = new Seq<>(false, 32, type);
 
         if(spatial){
-            tree = new QuadTree<>(new Rect(0, 0, 0, 0));
+            tree = new EntityGrid<>(new Rect(0, 0, 0, 0));
         }
 
         if(mapping){
@@ -124,15 +124,15 @@ public class EntityGroup<T extends Entityc> implements Iterable<T>{
         return intersectArray;
     }
 
-    public QuadTree tree(){
-        if(tree == null) throw new RuntimeException("This group does not support quadtrees! Enable quadtrees when creating it.");
+    public EntityGrid tree(){
+        if(tree == null) throw new RuntimeException("This group does not support spatial queries! Enable them when creating it.");
         return tree;
     }
 
-    /** Resizes the internal quadtree, if it is enabled.*/
+    /** Resizes the internal spatial grid, if it is enabled.*/
     public void resize(float x, float y, float w, float h){
         if(tree != null){
-            tree = new QuadTree<>(new Rect(x, y, w, h));
+            tree = new EntityGrid<>(new Rect(x, y, w, h));
         }
     }
 
@@ -188,6 +188,7 @@ public class EntityGroup<T extends Entityc> implements Iterable<T>{
         array.each(Entityc::remove);
         array.clear();
         if(map != null) map.clear();
+        if(tree != null) tree.clear();
 
         clearing = false;
     }
@@ -8,6 +8,7 @@ import arc.util.*;
 import mindustry.annotations.Annotations.*;
 import mindustry.content.*;
 import mindustry.core.*;
+import mindustry.entities.*;
 import mindustry.entities.bullet.*;
 import mindustry.game.*;
 import mindustry.game.Teams.*;
@@ -38,7 +39,7 @@ abstract class BulletComp implements Timedc, Damagec, Hitboxc, Teamc, Posc, Draw
     transient @Nullable Trail trail;
 
     @Override
-    public void getCollisions(Cons<QuadTree> consumer){
+    public void getCollisions(Cons<EntityGrid> consumer){
         Seq<TeamData> data = state.teams.present;
         for(int i = 0; i < data.size; i++){
             if(data.items[i].team != team){
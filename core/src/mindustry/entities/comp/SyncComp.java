@@ -15,6 +15,7 @@ abstract class SyncComp implements Entityc{
     void snapSync(){}
     void snapInterpolation(){}
     void readSync(Reads read){}
+    void readSyncUnchanged(){}
     void writeSync(Writes write){}
     void readSyncManual(FloatBuffer buffer){}
     void writeSyncManual(FloatBuffer buffer){}
@@ -97,17 +97,16 @@ public class Saves{
 
         if(state.isGame() && !state.gameOver && current != null && current.isAutosave()){
             time += Time.delta;
-            if(time > Core.settings.getInt("saveinterval") * 60){
+            if(time > Core.settings.getInt("saveinterval") * 60 && !saving){
                 saving = true;
 
                 try{
-                    current.save();
+                    current.saveAsync(() -> Time.runTask(3f, () -> saving = false));
                 }catch(Throwable t){
                     Log.err(t);
+                    saving = false;
                 }
 
-                Time.runTask(3f, () -> saving = false);
-
                 time = 0;
             }
         }else{
@@ -219,6 +218,27 @@ public class Saves{
             savePreview();
         }
 
+        /**
+         * Saves without compressing and writing the file on the main thread.
+         * @param done called on the main thread once the file has been written, whether it succeeded or not.
+         */
+        public void saveAsync(Runnable done){
+            SaveIO.saveAsync(file, error -> {
+                if(error == null){
+                    meta = SaveIO.getMeta(file);
+                }else{
+                    Log.err(error);
+                }
+                done.run();
+            });
+
+            if(state.isGame()){
+                current = this;
+            }
+
+            savePreview();
+        }
+
         private void savePreview(){
             if(Core.assets.isLoaded(loadPreviewFile().path())){
                 Core.assets.unload(loadPreviewFile().path());
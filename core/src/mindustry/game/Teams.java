@@ -9,6 +9,7 @@ import arc.util.*;
 import mindustry.*;
 import mindustry.ai.*;
 import mindustry.content.*;
+import mindustry.entities.*;
 import mindustry.entities.units.*;
 import mindustry.gen.*;
 import mindustry.type.*;
@@ -29,6 +30,8 @@ public class Teams{
     public Seq<TeamData> present = new Seq<>(TeamData.class);
     /** Current boss units. */
     public Seq<Unit> bosses = new Seq<>();
+    /** Incremented every time team presence and unit indices are updated. Unit indices do not change in between. */
+    public int updates;
 
     public Teams(){
         active.add(get(Team.crux));
@@ -147,6 +150,7 @@ public class Teams{
     }
 
     public void updateTeamStats(){
+        updates++;
         present.clear();
         bosses.clear();
 
@@ -156,9 +160,6 @@ public class Teams{
             data.presentFlag = false;
             data.unitCount = 0;
             data.units.clear();
-            if(data.tree != null){
-                data.tree.clear();
-            }
 
             if(data.typeCounts != null){
                 Arrays.fill(data.typeCounts, 0);
@@ -180,7 +181,7 @@ public class Teams{
         for(Unit unit : Groups.unit){
             if(unit.type == null) continue;
             TeamData data = unit.team.data();
-            data.tree().insert(unit);
+            data.tree().update(unit);
             data.units.add(unit);
             data.presentFlag = true;
 
@@ -205,6 +206,11 @@ public class Teams{
         for(Team team : Team.all){
             TeamData data = team.data();
 
+            //units that died or switched teams
+            if(data.tree != null){
+                data.tree.removeStale();
+            }
+
             if(data.presentFlag || data.active()){
                 present.add(data);
             }
@@ -253,9 +259,9 @@ public class Teams{
         /** Counts for each type of unit. Do not access directly. */
         @Nullable
         public int[] typeCounts;
-        /** Quadtree for units of this team. Do not access directly. */
+        /** Spatial index for units of this team, updated incrementally. Do not access directly. */
         @Nullable
-        public QuadTree<Unit> tree;
+        public EntityGrid<Unit> tree;
         /** Units of this team. Updated each frame. */
         public Seq<Unit> units = new Seq<>();
         /** Units of this team by type. Updated each frame. */
@@ -324,8 +330,8 @@ public class Teams{
             typeCounts[type.id] = Math.max(amount + typeCounts[type.id], 0);
         }
 
-        public QuadTree<Unit> tree(){
-            if(tree == null) tree = new QuadTree<>(Vars.world.getQuadBounds(new Rect()));
+        public EntityGrid<Unit> tree(){
+            if(tree == null) tree = new EntityGrid<>(Vars.world.getQuadBounds(new Rect()));
             return tree;
         }
 
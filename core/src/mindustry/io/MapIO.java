@@ -36,6 +36,16 @@ public class MapIO{
     }
 
     public static Map createMap(Fi file, boolean custom) throws IOException{
+        if(MetaIndex.indexable(file)){
+            MetaIndex.Entry entry = MetaIndex.of(file).get(file);
+            if(!entry.valid()) throw new IOException("Invalid map file: " + file);
+
+            //the tags of maps are modified, so they can't be shared with the index
+            StringMap tags = new StringMap();
+            tags.putAll(entry.tags);
+            return new Map(file, tags.getInt("width"), tags.getInt("height"), tags, custom, entry.version, Version.build);
+        }
+
         try(InputStream is = new InflaterInputStream(file.read(bufferSize)); CounterInputStream counter = new CounterInputStream(is); DataInputStream stream = new DataInputStream(counter)){
             SaveIO.readHeader(stream);
             int version = stream.readInt();
@@ -0,0 +1,217 @@
+package mindustry.io;
+
+import arc.*;
+import arc.Files.*;
+import arc.files.*;
+import arc.struct.*;
+import arc.util.*;
+import arc.util.io.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.channels.FileChannel.*;
+import java.util.zip.*;
+
+/**
+ * Caches the meta region of save and map files in a directory, so listing them does not require inflating every file.
+ * Entries are keyed by file name and are valid as long as the file has the same size and modification time.
+ * The index is stored uncompressed in the directory it describes, and is memory-mapped when read (except on Windows).
+ * Files outside of the local file system (such as built-in maps) are always read directly.
+ */
+public class MetaIndex{
+    /** Index format header. */
+    public static final byte[] header = {'M', 'I', 'D', 'X'};
+    public static final int version = 1;
+    public static final String fileName = ".metaindex";
+
+    private static final ObjectMap<String, MetaIndex> indices = new ObjectMap<>();
+
+    private final Fi file;
+    private final ObjectMap<String, Entry> entries = new ObjectMap<>();
+    private boolean dirty, flushQueued;
+
+    /** Amount of lookups that were answered from the index, or had to read the file. */
+    public int hits, misses;
+
+    public MetaIndex(Fi file){
+        this.file = file;
+        load();
+    }
+
+    /** @return the index of the directory that contains this file. */
+    public static synchronized MetaIndex of(Fi file){
+        Fi directory = file.parent();
+        return indices.get(directory.absolutePath(), () -> new MetaIndex(directory.child(fileName)));
+    }
+
+    /** @return whether files of this type can be indexed. */
+    public static boolean indexable(Fi file){
+        return (file.type() == FileType.local || file.type() == FileType.absolute || file.type() == FileType.external) && !file.name().equals(fileName);
+    }
+
+    /**
+     * @return the meta entry of a save or map file. Invalid files have an entry with a version of -1.
+     * The returned tags must not be modified.
+     */
+    public synchronized Entry get(Fi file){
+        long length = file.length(), modified = file.lastModified();
+        Entry entry = entries.get(file.name());
+
+        if(entry != null && entry.length == length && entry.modified == modified){
+            hits++;
+            return entry;
+        }
+
+        misses++;
+        entry = read(file);
+        entry.length = length;
+        entry.modified = modified;
+        entries.put(file.name(), entry);
+        changed();
+        return entry;
+    }
+
+    /** Removes the entry of a file, which is necessary when it may be rewritten without changing its size or modification time. */
+    public synchronized void invalidate(Fi file){
+        if(entries.remove(file.name()) != null){
+            changed();
+        }
+    }
+
+    /** Writes the index to disk, if it has changed. Entries of files that no longer exist are removed. */
+    public synchronized void flush(){
+        flushQueued = false;
+        if(!dirty) return;
+        dirty = false;
+
+        Fi directory = file.parent();
+        for(var it = entries.keys().iterator(); it.hasNext();){
+            if(!directory.child(it.next()).exists()) it.remove();
+        }
+
+        try(DataOutputStream stream = new DataOutputStream(file.write(false, 8192))){
+            stream.write(header);
+            stream.writeInt(version);
+            stream.writeInt(entries.size);
+
+            for(var e : entries){
+                Entry entry = e.value;
+                stream.writeUTF(e.key);
+                stream.writeLong(entry.length);
+                stream.writeLong(entry.modified);
+                stream.writeInt(entry.version);
+                stream.writeBoolean(entry.save);
+                stream.writeShort(entry.tags.size);
+                for(var tag : entry.tags){
+                    stream.writeUTF(tag.key);
+                    stream.writeUTF(tag.value);
+                }
+            }
+        }catch(Throwable e){
+            Log.err("Failed to write meta index '" + file + "'", e);
+            file.delete();
+        }
+    }
+
+    public synchronized int size(){
+        return entries.size;
+    }
+
+    private void changed(){
+        dirty = true;
+
+        //many files are usually read at once, so the index is only written once they are done
+        if(Core.app == null){
+            flush();
+        }else if(!flushQueued){
+            flushQueued = true;
+            Core.app.post(this::flush);
+        }
+    }
+
+    private void load(){
+        if(!file.exists()) return;
+
+        try(RandomAccessFile raf = new RandomAccessFile(file.file(), "r"); FileChannel channel = raf.getChannel()){
+            ByteBuffer buffer;
+            if(OS.isWindows){
+                //mapped files can't be overwritten on Windows until the mapping is garbage collected
+                buffer = ByteBuffer.allocate((int)channel.size());
+                while(buffer.hasRemaining() && channel.read(buffer) != -1);
+                buffer.flip();
+            }else{
+                buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+            }
+            DataInput in = new ByteBufferInput(buffer);
+
+            SaveIO.readHeader(in, header);
+            if(in.readInt() != version) return;
+
+            int count = in.readInt();
+            for(int i = 0; i < count; i++){
+                String name = in.readUTF();
+                Entry entry = new Entry();
+                entry.length = in.readLong();
+                entry.modified = in.readLong();
+                entry.version = in.readInt();
+                entry.save = in.readBoolean();
+                entry.tags = new StringMap();
+                int tags = in.readShort();
+                for(int t = 0; t < tags; t++){
+                    entry.tags.put(in.readUTF(), in.readUTF());
+                }
+                entries.put(name, entry);
+            }
+        }catch(Throwable e){
+            //the index is only a cache; rebuild it
+            Log.warn("Discarding invalid meta index '@': @", file, e.toString());
+            entries.clear();
+        }
+    }
+
+    /** Reads the meta region of a save or map file. */
+    static Entry read(Fi file){
+        Entry entry = new Entry();
+
+        try(InputStream is = new InflaterInputStream(file.read(8192)); CounterInputStream counter = new CounterInputStream(is); DataInputStream stream = new DataInputStream(counter)){
+            SaveIO.readHeader(stream);
+            int version = stream.readInt();
+            SaveVersion ver = SaveIO.getSaveWriter(version);
+            if(ver == null) throw new IOException("Unknown save version: " + version);
+
+            StringMap tags = new StringMap();
+            ver.region("meta", stream, counter, in -> tags.putAll(ver.readStringMap(in)));
+
+            entry.version = version;
+            entry.tags = tags;
+        }catch(Throwable e){
+            entry.version = -1;
+            entry.tags = new StringMap();
+        }
+
+        if(entry.valid()){
+            try{
+                SaveIO.getSaveWriter(entry.version).getMeta(entry.tags);
+                entry.save = true;
+            }catch(Throwable ignored){
+                //maps don't need valid save metadata
+            }
+        }
+
+        return entry;
+    }
+
+    public static class Entry{
+        public long length, modified;
+        /** Save format version, or -1 if the meta region could not be read. */
+        public int version;
+        /** Whether the tags are valid save metadata. */
+        public boolean save;
+        public StringMap tags;
+
+        public boolean valid(){
+            return version != -1;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package mindustry.io;
 
 import arc.*;
 import arc.files.*;
+import arc.func.*;
 import arc.struct.*;
 import arc.util.*;
 import arc.util.io.*;
@@ -13,6 +14,7 @@ import mindustry.world.*;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.zip.*;
 
 import static mindustry.Vars.*;
@@ -21,7 +23,9 @@ public class SaveIO{
     /** Save format header. */
     public static final byte[] header = {'M', 'S', 'A', 'V'};
     public static final IntMap<SaveVersion> versions = new IntMap<>();
-    public static final Seq<SaveVersion> versionArray = Seq.with(new Save1(), new Save2(), new Save3(), new Save4(), new Save5());
+    public static final Seq<SaveVersion> versionArray = Seq.with(new Save1(), new Save2(), new Save3(), new Save4(), new Save5(), new Save6());
+    /** Compresses and writes saves from {@link #saveAsync(Fi, Cons)} in order. */
+    private static final ExecutorService saveExecutor = Threads.executor(1);
 
     static{
         for(SaveVersion version : versionArray){
@@ -38,6 +42,7 @@ public class SaveIO{
     }
 
     public static void save(Fi file){
+        awaitWrites();
         boolean exists = file.exists();
         if(exists) file.moveTo(backupFileFor(file));
         try{
@@ -48,6 +53,57 @@ public class SaveIO{
         }
     }
 
+    /**
+     * Saves the world without blocking the calling thread for compression and file I/O.
+     * The world is captured into an uncompressed in-memory buffer on the calling thread; it is then compressed and written to a
+     * temporary file on a background thread, which replaces the save file once complete.
+     * @param done called on the main thread once the save is written, with the error if it failed or null if it succeeded.
+     */
+    public static void saveAsync(Fi file, @Nullable Cons<Throwable> done){
+        long start = Time.nanos();
+        ReusableByteOutStream raw = new ReusableByteOutStream(1024 * 256);
+        write(raw, null);
+        float captureTime = Time.timeSinceNanos(start) / 1000000f;
+
+        saveExecutor.submit(() -> {
+            long writeStart = Time.nanos();
+            Fi temp = file.sibling(file.name() + ".tmp");
+            Throwable error = null;
+
+            try{
+                try(OutputStream os = new FastDeflaterOutputStream(temp.write(false, bufferSize))){
+                    os.write(raw.getBytes(), 0, raw.size());
+                }
+
+                //keep the previous save as a backup, like save() does; both moves are renames within the same directory
+                if(file.exists()) file.moveTo(backupFileFor(file));
+                temp.moveTo(file);
+                if(MetaIndex.indexable(file)) MetaIndex.of(file).invalidate(file);
+            }catch(Throwable e){
+                error = e;
+                temp.delete();
+            }
+
+            Log.debug("Saved '@': @ms capturing, @ms writing.", file.name(), Strings.fixed(captureTime, 2), Strings.fixed(Time.timeSinceNanos(writeStart) / 1000000f, 2));
+
+            Throwable result = error;
+            if(done != null) Core.app.post(() -> done.get(result));
+        });
+    }
+
+    /**
+     * Blocks until every save queued by {@link #saveAsync(Fi, Cons)} is written.
+     * Files must not be written while an older save of them is queued, as it would replace them once written.
+     */
+    public static void awaitWrites(){
+        try{
+            //the executor has one thread, so this runs after all queued saves
+            saveExecutor.submit(() -> {}).get();
+        }catch(Exception e){
+            throw new RuntimeException(e);
+        }
+    }
+
     public static DataInputStream getStream(Fi file){
         return new DataInputStream(new InflaterInputStream(file.read(bufferSize)));
     }
@@ -57,6 +113,10 @@ public class SaveIO{
     }
 
     public static boolean isSaveValid(Fi file){
+        if(MetaIndex.indexable(file)){
+            return MetaIndex.of(file).get(file).save;
+        }
+
         try(DataInputStream stream = new DataInputStream(new InflaterInputStream(file.read(bufferSize)))){
             return isSaveValid(stream);
         }catch(Throwable e){
@@ -75,6 +135,13 @@ public class SaveIO{
 
     public static SaveMeta getMeta(Fi file){
         try{
+            if(MetaIndex.indexable(file)){
+                MetaIndex.Entry entry = MetaIndex.of(file).get(file);
+                if(entry.save){
+                    return versions.get(entry.version).getMeta(entry.tags);
+                }
+            }
+
             return getMeta(getStream(file));
         }catch(Throwable e){
             Log.err(e);
@@ -104,6 +171,9 @@ public class SaveIO{
     }
 
     public static void write(Fi file, StringMap tags){
+        awaitWrites();
+        //the file may be rewritten with the same size and modification time
+        if(MetaIndex.indexable(file)) MetaIndex.of(file).invalidate(file);
         write(new FastDeflaterOutputStream(file.write(false, bufferSize)), tags);
     }
 
@@ -174,6 +244,10 @@ public class SaveIO{
     }
 
     public static void readHeader(DataInput input) throws IOException{
+        readHeader(input, header);
+    }
+
+    public static void readHeader(DataInput input, byte[] header) throws IOException{
         byte[] bytes = new byte[header.length];
         input.readFully(bytes);
         if(!Arrays.equals(bytes, header)){
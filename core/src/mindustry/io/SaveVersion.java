@@ -36,7 +36,11 @@ public abstract class SaveVersion extends SaveFileReader{
 
     public SaveMeta getMeta(DataInput stream) throws IOException{
         stream.readInt(); //length of data, doesn't matter here
-        StringMap map = readStringMap(stream);
+        return getMeta(readStringMap(stream));
+    }
+
+    /** @return save metadata from the tags of the meta region. */
+    public SaveMeta getMeta(StringMap map){
         return new SaveMeta(
             map.getInt("version"),
             map.getLong("saved"),
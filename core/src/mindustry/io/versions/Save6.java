@@ -0,0 +1,337 @@
+package mindustry.io.versions;
+
+import arc.struct.*;
+import arc.util.*;
+import arc.util.io.*;
+import mindustry.content.*;
+import mindustry.io.*;
+import mindustry.world.*;
+
+import java.io.*;
+import java.util.concurrent.*;
+import java.util.zip.*;
+
+import static mindustry.Vars.*;
+
+/**
+ * This version splits the map region into bands of rows, which are compressed independently and preceded by an index of their sizes.
+ * When loading, bands are inflated and decoded on a worker pool while later bands are still being read, and tiles are created
+ * in order as bands finish. Blocks and buildings are set on the calling thread afterwards, as they depend on neighbouring tiles.
+ * Each band uses the same encoding as the map region of older versions, restricted to its own rows.
+ * Bands are compressed again by the stream the save is written to. That pass barely shrinks them, but zlib writes incompressible
+ * data as stored blocks, so reading them back through the outer stream is mostly a copy; the actual inflation happens in parallel.
+ */
+public class Save6 extends SaveVersion{
+    /** Approximate amount of tiles in a band. */
+    public static final int bandTiles = 128 * 128;
+
+    private static @Nullable ExecutorService executor;
+
+    //building data of the band that is currently being read
+    private final ReusableByteInStream bandStream = new ReusableByteInStream();
+    private final DataInputStream bandInput = new DataInputStream(bandStream);
+
+    public Save6(){
+        super(6);
+    }
+
+    @Override
+    public void writeMap(DataOutput stream) throws IOException{
+        int width = world.width(), height = world.height();
+        int rows = Math.max(bandTiles / Math.max(width, 1), 1), bands = (height + rows - 1) / rows;
+
+        stream.writeShort(width);
+        stream.writeShort(height);
+        stream.writeShort(rows);
+
+        //tiles are encoded on this thread, as buildings are read while encoding; compression happens on the pool
+        Seq<Future<byte[]>> compressed = new Seq<>(bands);
+        ReusableByteOutStream band = new ReusableByteOutStream(bandTiles * 4);
+        DataOutputStream out = new DataOutputStream(band);
+
+        for(int i = 0; i < bands; i++){
+            band.reset();
+            writeBand(out, i * rows * width, Math.min((i + 1) * rows, height) * width);
+            byte[] raw = band.toByteArray();
+            compressed.add(executor().submit(() -> deflate(raw)));
+        }
+
+        //write the index first, so readers can start decoding a band as soon as it has been read
+        byte[][] data = new byte[bands][];
+        for(int i = 0; i < bands; i++){
+            data[i] = get(compressed.get(i));
+            stream.writeInt(data[i].length);
+        }
+
+        for(byte[] bytes : data){
+            stream.write(bytes);
+        }
+    }
+
+    @Override
+    public void readMap(DataInput stream, WorldContext context) throws IOException{
+        int width = stream.readUnsignedShort();
+        int height = stream.readUnsignedShort();
+        int rows = stream.readUnsignedShort();
+        int bands = (height + rows - 1) / rows;
+
+        int[] lengths = new int[bands];
+        for(int i = 0; i < bands; i++){
+            lengths[i] = stream.readInt();
+        }
+
+        Seq<Future<Band>> decoded = new Seq<>(bands);
+        for(int i = 0; i < bands; i++){
+            byte[] bytes = new byte[lengths[i]];
+            stream.readFully(bytes);
+
+            int from = i * rows * width, to = Math.min((i + 1) * rows, height) * width;
+            decoded.add(executor().submit(() -> new Band(from, to, inflate(bytes), width)));
+        }
+
+        boolean generating = context.isGenerating();
+
+        if(!generating) context.begin();
+        try{
+            context.resize(width, height);
+
+            Band[] result = new Band[bands];
+
+            //create tiles as soon as their band is decoded
+            for(int i = 0; i < bands; i++){
+                Band band = result[i] = get(decoded.get(i));
+
+                for(int t = band.from; t < band.to; t++){
+                    int index = t - band.from;
+                    short floor = band.floors[index];
+                    if(content.block(floor) == Blocks.air) floor = Blocks.stone.id;
+
+                    context.create(t % width, t / width, floor, band.overlays[index], (short)0);
+                }
+            }
+
+            //blocks can span bands, so they are set after all tiles exist
+            for(Band band : result){
+                readBlocks(band, context);
+            }
+        }finally{
+            if(!generating) context.end();
+        }
+    }
+
+    /** Writes the tiles in [from, to) in the same encoding as {@link SaveVersion#writeMap(DataOutput)}. */
+    void writeBand(DataOutput stream, int from, int to) throws IOException{
+        int width = world.width();
+
+        //floor + overlay
+        for(int i = from; i < to; i++){
+            Tile tile = world.rawTile(i % width, i / width);
+            stream.writeShort(tile.floorID());
+            stream.writeShort(tile.overlayID());
+            int consecutives = 0;
+
+            for(int j = i + 1; j < to && consecutives < 255; j++){
+                Tile nextTile = world.rawTile(j % width, j / width);
+
+                if(nextTile.floorID() != tile.floorID() || nextTile.overlayID() != tile.overlayID()){
+                    break;
+                }
+
+                consecutives++;
+            }
+
+            stream.writeByte(consecutives);
+            i += consecutives;
+        }
+
+        //blocks
+        for(int i = from; i < to; i++){
+            Tile tile = world.rawTile(i % width, i / width);
+            stream.writeShort(tile.blockID());
+
+            boolean savedata = tile.block().saveData;
+            byte packed = (byte)((tile.build != null ? 1 : 0) | (savedata ? 2 : 0));
+
+            stream.writeByte(packed);
+
+            if(tile.build != null){
+                if(tile.isCenter()){
+                    stream.writeBoolean(true);
+                    writeChunk(stream, true, out -> {
+                        out.writeByte(tile.build.version());
+                        tile.build.writeAll(Writes.get(out));
+                    });
+                }else{
+                    stream.writeBoolean(false);
+                }
+            }else if(savedata){
+                stream.writeByte(tile.data);
+            }else{
+                int consecutives = 0;
+
+                for(int j = i + 1; j < to && consecutives < 255; j++){
+                    Tile nextTile = world.rawTile(j % width, j / width);
+
+                    if(nextTile.blockID() != tile.blockID()){
+                        break;
+                    }
+
+                    consecutives++;
+                }
+
+                stream.writeByte(consecutives);
+                i += consecutives;
+            }
+        }
+    }
+
+    void readBlocks(Band band, WorldContext context) throws IOException{
+        bandStream.setBytes(band.bytes);
+
+        for(int t = band.from; t < band.to; t++){
+            int index = t - band.from;
+            Block block = content.block(band.blocks[index]);
+            if(block == null) block = Blocks.air;
+
+            byte flags = band.flags[index];
+            Tile tile = context.tile(t);
+
+            if((flags & Band.entity) != 0){
+                //non-center tiles of multiblocks are set by their center
+                if((flags & Band.center) == 0) continue;
+
+                tile.setBlock(block);
+
+                //buildings are stored in tile order, so this only skips forward over the block data in between
+                bandStream.skip(band.buildings[index] - (band.bytes.length - bandStream.available()));
+                if(block.hasBuilding()){
+                    try{
+                        readChunk(bandInput, true, in -> {
+                            byte revision = in.readByte();
+                            tile.build.readAll(Reads.get(in), revision);
+                        });
+                    }catch(Throwable e){
+                        throw new IOException("Failed to read tile entity of block: " + block, e);
+                    }
+                }else{
+                    //skip the entity region, as the entity and its IO code are now gone
+                    skipChunk(bandInput, true);
+                }
+
+                context.onReadBuilding();
+            }else{
+                tile.setBlock(block);
+                if((flags & Band.data) != 0){
+                    tile.data = band.tileData[index];
+                }
+            }
+        }
+    }
+
+    static byte[] deflate(byte[] bytes) throws IOException{
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 16);
+        try(DeflaterOutputStream def = new FastDeflaterOutputStream(out)){
+            def.write(bytes);
+        }
+        return out.toByteArray();
+    }
+
+    static byte[] inflate(byte[] bytes) throws IOException{
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length * 4);
+        try(InflaterInputStream in = new InflaterInputStream(new ByteArrayInputStream(bytes))){
+            byte[] buffer = new byte[8192];
+            int read;
+            while((read = in.read(buffer)) != -1){
+                out.write(buffer, 0, read);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    static <T> T get(Future<T> future) throws IOException{
+        try{
+            return future.get();
+        }catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }catch(ExecutionException e){
+            throw new IOException("Failed to decode map band.", e.getCause());
+        }
+    }
+
+    static ExecutorService executor(){
+        if(executor == null){
+            executor = Executors.newFixedThreadPool(Math.max(OS.cores - 1, 1), r -> {
+                Thread thread = new Thread(r, "Save-Worker");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+
+    /** A decoded band of tiles. Building data stays in the inflated bytes, and is read on the calling thread. */
+    static class Band{
+        static final byte entity = 1, data = 2, center = 4;
+
+        final int from, to;
+        final byte[] bytes;
+        final short[] floors, overlays, blocks;
+        final byte[] flags, tileData;
+        /** Offsets of building chunks in {@link #bytes} for center tiles with buildings. */
+        final int[] buildings;
+
+        Band(int from, int to, byte[] bytes, int width) throws IOException{
+            int size = to - from;
+            this.from = from;
+            this.to = to;
+            this.bytes = bytes;
+            floors = new short[size];
+            overlays = new short[size];
+            blocks = new short[size];
+            flags = new byte[size];
+            tileData = new byte[size];
+            buildings = new int[size];
+
+            ReusableByteInStream bin = new ReusableByteInStream();
+            bin.setBytes(bytes);
+            DataInputStream in = new DataInputStream(bin);
+
+            for(int i = 0; i < size; i++){
+                short floor = in.readShort(), overlay = in.readShort();
+                int consecutives = in.readUnsignedByte();
+
+                for(int j = i; j <= i + consecutives; j++){
+                    floors[j] = floor;
+                    overlays[j] = overlay;
+                }
+                i += consecutives;
+            }
+
+            for(int i = 0; i < size; i++){
+                short block = in.readShort();
+                byte packed = in.readByte();
+                blocks[i] = block;
+
+                if((packed & 1) != 0){
+                    flags[i] = entity;
+                    if(in.readBoolean()){
+                        flags[i] |= center;
+                        buildings[i] = bytes.length - bin.available();
+                        int length = in.readUnsignedShort();
+                        in.skipBytes(length);
+                    }
+                }else if((packed & 2) != 0){
+                    flags[i] = data;
+                    tileData[i] = in.readByte();
+                }else{
+                    int consecutives = in.readUnsignedByte();
+                    for(int j = i + 1; j <= i + consecutives; j++){
+                        blocks[j] = block;
+                    }
+                    i += consecutives;
+                }
+            }
+        }
+    }
+}
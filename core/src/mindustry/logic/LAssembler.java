@@ -18,6 +18,10 @@ public class LAssembler{
     public ObjectMap<String, BVar> vars = new ObjectMap<>();
     /** All instructions to be executed. */
     public LInstruction[] instructions;
+    /** Names of the statements the instructions were assembled from, by instruction index. May be null if the instructions were not assembled from statements. */
+    public @Nullable String[] statementNames;
+    /** The shared program these instructions belong to, if this assembler was created by a {@link LogicProgramCache}. */
+    public @Nullable LogicProgramCache.Program program;
 
     public LAssembler(){
         //instruction counter
@@ -37,7 +41,19 @@ public class LAssembler{
 
         Seq<LStatement> st = read(data);
 
-        asm.instructions = st.map(l -> l.build(asm)).filter(l -> l != null).toArray(LInstruction.class);
+        Seq<LInstruction> instructions = new Seq<>(st.size);
+        Seq<String> names = new Seq<>(st.size);
+        for(LStatement statement : st){
+            LInstruction inst = statement.build(asm);
+            if(inst != null){
+                instructions.add(inst);
+                names.add(statement.name());
+            }
+        }
+
+        asm.instructions = instructions.toArray(LInstruction.class);
+        asm.statementNames = names.toArray(String.class);
+        asm.fold();
         return asm;
     }
 
@@ -60,15 +76,16 @@ public class LAssembler{
     public int var(String symbol){
         int constId = Vars.constants.get(symbol);
         if(constId > 0){
-            //global constants are *negated* and stored separately
-            return -constId;
+            //global constants are copied into the program, so all variables can be read from the same arrays
+            Var global = Vars.constants.get(constId);
+            return putLiteral(symbol, global.isobj ? global.objval : (Object)global.numval).id;
         }
 
         symbol = symbol.trim();
 
         //string case
         if(!symbol.isEmpty() && symbol.charAt(0) == '\"' && symbol.charAt(symbol.length() - 1) == '\"'){
-            return putConst("___" + symbol, symbol.substring(1, symbol.length() - 1).replace("\\n", "\n")).id;
+            return putLiteral("___" + symbol, symbol.substring(1, symbol.length() - 1).replace("\\n", "\n")).id;
         }
 
         //remove spaces for non-strings
@@ -80,7 +97,7 @@ public class LAssembler{
             return putVar(symbol).id;
         }else{
             //this creates a hidden const variable with the specified value
-            return putConst("___" + value, value).id;
+            return putLiteral("___" + value, value).id;
         }
     }
 
@@ -100,6 +117,69 @@ public class LAssembler{
         return var;
     }
 
+    /** @return an assembler with copies of this assembler's variables, sharing its instructions. */
+    public LAssembler copy(){
+        LAssembler out = new LAssembler();
+        out.vars.clear();
+        for(var entry : vars){
+            BVar var = new BVar(entry.value.id);
+            var.constant = entry.value.constant;
+            var.literal = entry.value.literal;
+            var.value = entry.value.value;
+            out.vars.put(entry.key, var);
+        }
+        out.lastVar = lastVar;
+        out.instructions = instructions;
+        out.statementNames = statementNames;
+        return out;
+    }
+
+    /** Adds a constant for a value written in the code. */
+    BVar putLiteral(String name, Object value){
+        BVar var = putConst(name, value);
+        var.literal = true;
+        return var;
+    }
+
+    /**
+     * Replaces operations and jumps that only read literals with their result, by running them once on a scratch executor.
+     * Each instruction is replaced with exactly one instruction, so jump addresses stay valid.
+     */
+    void fold(){
+        LExecutor scratch = null;
+        //values of literals are known while assembling and never change
+        boolean[] literal = new boolean[lastVar];
+        for(BVar var : vars.values()){
+            literal[var.id] = var.literal;
+        }
+
+        for(int i = 0; i < instructions.length; i++){
+            LInstruction inst = instructions[i];
+
+            if(inst instanceof OpI op && op.op != LogicOp.rand && literal[op.a] && (op.op.unary || literal[op.b])){
+                if(scratch == null) scratch = scratch();
+                if(scratch.constant[op.dest]) continue;
+
+                op.run(scratch);
+                Object result = scratch.value(op.dest);
+                //numeric operations either produce a valid number or null
+                instructions[i] = new SetI(result == null ? var("null") : putLiteral("___" + result, result).id, op.dest);
+            }else if(inst instanceof JumpI jump && jump.address != -1 && jump.op != ConditionOp.always && literal[jump.value] && literal[jump.compare]){
+                if(scratch == null) scratch = scratch();
+
+                scratch.nums[LExecutor.varCounter] = -1;
+                jump.run(scratch);
+                instructions[i] = scratch.nums[LExecutor.varCounter] == jump.address ? new JumpI(ConditionOp.always, jump.value, jump.compare, jump.address) : new NoopI();
+            }
+        }
+    }
+
+    private LExecutor scratch(){
+        LExecutor exec = new LExecutor();
+        exec.loadVars(this);
+        return exec;
+    }
+
     /** Registers a variable name mapping. */
     public BVar putVar(String name){
         if(vars.containsKey(name)){
@@ -120,6 +200,8 @@ public class LAssembler{
     public static class BVar{
         public int id;
         public boolean constant;
+        /** Whether this variable holds a value written in the code, such as a number, string or global constant. */
+        public boolean literal;
         public Object value;
 
         public BVar(int id){
@@ -133,6 +215,7 @@ public class LAssembler{
             return "BVar{" +
             "id=" + id +
             ", constant=" + constant +
+            ", literal=" + literal +
             ", value=" + value +
             '}';
         }
@@ -0,0 +1,253 @@
+package mindustry.logic;
+
+import mindustry.logic.LAssembler.*;
+import mindustry.logic.LExecutor.*;
+
+import static mindustry.logic.LExecutor.*;
+
+/**
+ * Compiles assembled instructions into a specialized form.
+ * The most common instructions are replaced with implementations that have numeric fast paths and read the executor's
+ * variable arrays directly, and instructions that can be decided while assembling are removed.
+ * Compiled instructions only refer to variables by ID, so they do not depend on the executor that runs them.
+ * Every compiled instruction corresponds to exactly one source instruction, so jump addresses and instruction counts are unchanged.
+ */
+public class LCompiler{
+    /** Whether executors compile their instructions when loading a program. */
+    public static boolean enabled = true;
+
+    public static LInstruction[] compile(LAssembler asm, LInstruction[] instructions){
+        BVar[] vars = new BVar[asm.vars.size];
+        for(BVar var : asm.vars.values()){
+            vars[var.id] = var;
+        }
+
+        LInstruction[] out = new LInstruction[instructions.length];
+        for(int i = 0; i < instructions.length; i++){
+            out[i] = compile(vars, instructions[i]);
+        }
+        return out;
+    }
+
+    /** @return a specialized version of this instruction, or the instruction itself if it has none. */
+    static LInstruction compile(BVar[] vars, LInstruction inst){
+        if(inst instanceof SetI i){
+            BVar from = vars[i.from];
+
+            if(vars[i.to].constant) return new NoopI();
+            if(from.literal && from.value instanceof Number num) return new SetNumC(i.to, invalid(num.doubleValue()) ? 0 : num.doubleValue());
+            return new SetC(i.from, i.to);
+        }
+
+        if(inst instanceof OpI i && i.op != LogicOp.strictEqual){
+            return i.op.unary ? new OpUnaryC(i.op, i.a, i.dest) : new OpC(i.op, i.a, i.b, i.dest);
+        }
+
+        if(inst instanceof JumpI i && i.op != ConditionOp.strictEqual){
+            if(i.address == -1) return new NoopI();
+            if(i.op == ConditionOp.always) return new GotoC(i.address);
+            return new JumpC(i.op, i.value, i.compare, i.address);
+        }
+
+        return inst;
+    }
+
+    public static class SetNumC implements LInstruction{
+        public final int to;
+        public final double value;
+
+        public SetNumC(int to, double value){
+            this.to = to;
+            this.value = value;
+        }
+
+        @Override
+        public boolean stateless(){
+            return true;
+        }
+
+        @Override
+        public void run(LExecutor exec){
+            exec.nums[to] = value;
+            exec.isobj[to] = false;
+        }
+
+        @Override
+        public boolean local(){
+            return true;
+        }
+    }
+
+    public static class SetC implements LInstruction{
+        public final int from, to;
+
+        public SetC(int from, int to){
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean stateless(){
+            return true;
+        }
+
+        @Override
+        public void run(LExecutor exec){
+            exec.copy(from, to);
+        }
+
+        @Override
+        public boolean local(){
+            return true;
+        }
+    }
+
+    public static class OpC implements LInstruction{
+        public final LogicOp op;
+        public final int a, b, dest;
+
+        public OpC(LogicOp op, int a, int b, int dest){
+            this.op = op;
+            this.a = a;
+            this.b = b;
+            this.dest = dest;
+        }
+
+        @Override
+        public boolean stateless(){
+            return true;
+        }
+
+        @Override
+        public void run(LExecutor exec){
+            if(op.objFunction2 != null && exec.isobj[a] && exec.isobj[b]){
+                exec.setnum(dest, op.objFunction2.get(exec.objs[a], exec.objs[b]));
+                return;
+            }
+
+            double x = exec.num(a), y = exec.num(b);
+
+            //common operations are inlined; the rest use the same functions as the interpreter
+            exec.setnum(dest, switch(op){
+                case add -> x + y;
+                case sub -> x - y;
+                case mul -> x * y;
+                case div -> x / y;
+                case idiv -> Math.floor(x / y);
+                case mod -> x % y;
+                case equal -> Math.abs(x - y) < 0.000001 ? 1 : 0;
+                case notEqual -> Math.abs(x - y) < 0.000001 ? 0 : 1;
+                case land -> x != 0 && y != 0 ? 1 : 0;
+                case lessThan -> x < y ? 1 : 0;
+                case lessThanEq -> x <= y ? 1 : 0;
+                case greaterThan -> x > y ? 1 : 0;
+                case greaterThanEq -> x >= y ? 1 : 0;
+                case max -> Math.max(x, y);
+                case min -> Math.min(x, y);
+                default -> op.function2.get(x, y);
+            });
+        }
+
+        @Override
+        public boolean local(){
+            return op != LogicOp.rand;
+        }
+    }
+
+    public static class OpUnaryC implements LInstruction{
+        public final LogicOp op;
+        public final int a, dest;
+
+        public OpUnaryC(LogicOp op, int a, int dest){
+            this.op = op;
+            this.a = a;
+            this.dest = dest;
+        }
+
+        @Override
+        public boolean stateless(){
+            return true;
+        }
+
+        @Override
+        public void run(LExecutor exec){
+            exec.setnum(dest, op.function1.get(exec.num(a)));
+        }
+
+        @Override
+        public boolean local(){
+            return op != LogicOp.rand;
+        }
+    }
+
+    public static class JumpC implements LInstruction{
+        public final ConditionOp op;
+        public final int a, b;
+        public final int address;
+
+        public JumpC(ConditionOp op, int a, int b, int address){
+            this.op = op;
+            this.a = a;
+            this.b = b;
+            this.address = address;
+        }
+
+        @Override
+        public boolean stateless(){
+            return true;
+        }
+
+        @Override
+        public void run(LExecutor exec){
+            boolean cmp;
+
+            if(op.objFunction != null && exec.isobj[a] && exec.isobj[b]){
+                cmp = op.objFunction.get(exec.objs[a], exec.objs[b]);
+            }else{
+                double x = exec.num(a), y = exec.num(b);
+
+                cmp = switch(op){
+                    case equal -> Math.abs(x - y) < 0.000001;
+                    case notEqual -> Math.abs(x - y) >= 0.000001;
+                    case lessThan -> x < y;
+                    case lessThanEq -> x <= y;
+                    case greaterThan -> x > y;
+                    case greaterThanEq -> x >= y;
+                    default -> op.function.get(x, y);
+                };
+            }
+
+            if(cmp){
+                exec.nums[varCounter] = address;
+            }
+        }
+
+        @Override
+        public boolean local(){
+            return true;
+        }
+    }
+
+    public static class GotoC implements LInstruction{
+        public final int address;
+
+        public GotoC(int address){
+            this.address = address;
+        }
+
+        @Override
+        public boolean stateless(){
+            return true;
+        }
+
+        @Override
+        public void run(LExecutor exec){
+            exec.nums[varCounter] = address;
+        }
+
+        @Override
+        public boolean local(){
+            return true;
+        }
+    }
+}
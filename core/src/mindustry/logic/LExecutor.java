@@ -42,7 +42,19 @@ public class LExecutor{
     maxTextBuffer = 256;
 
     public LInstruction[] instructions = {};
-    public Var[] vars = {};
+
+    //variables are stored as parallel arrays indexed by variable ID, so reading a number does not go through an object
+    /** Names of all variables. */
+    public String[] names = {};
+    /** Numeric values of variables; only meaningful when the variable does not hold an object. */
+    public double[] nums = {};
+    /** Object values of variables; only meaningful when the variable holds an object. */
+    public Object[] objs = {};
+    /** Whether each variable currently holds an object instead of a number. */
+    public boolean[] isobj = {};
+    /** Whether each variable is constant, which means it cannot be set by instructions. */
+    public boolean[] constant = {};
+
     public int[] binds;
 
     public LongSeq graphicsBuffer = new LongSeq();
@@ -50,26 +62,60 @@ public class LExecutor{
     public Building[] links = {};
     public IntSet linkIds = new IntSet();
     public Team team = Team.derelict;
+    /** Total time spent running instructions, in nanoseconds. Listed by the server 'processors' command. */
+    public long cpuTime;
+    /** The shared program that was loaded, if any. */
+    public @Nullable LogicProgramCache.Program program;
+    /** Names of the statements the instructions were assembled from, as instructions may be replaced by compiled or folded versions. */
+    public @Nullable String[] statementNames;
+    /** Per-instruction counts and times, or null if this executor is not being profiled. */
+    public @Nullable LogicProfiler.Profile profile;
 
     public boolean initialized(){
-        return instructions != null && vars != null && instructions.length > 0;
+        return instructions != null && nums != null && instructions.length > 0;
     }
 
     /** Runs a single instruction. */
     public void runOnce(){
         //set up time; note that @time is now only updated once every invocation and directly based off of @tick.
         //having time be based off of user system time was a very bad idea.
-        vars[varTime].numval = state.tick / 60.0 * 1000.0;
-        vars[varTick].numval = state.tick;
+        nums[varTime] = state.tick / 60.0 * 1000.0;
+        nums[varTick] = state.tick;
 
         //reset to start
-        if(vars[varCounter].numval >= instructions.length || vars[varCounter].numval < 0){
-            vars[varCounter].numval = 0;
+        if(nums[varCounter] >= instructions.length || nums[varCounter] < 0){
+            nums[varCounter] = 0;
+        }
+
+        if(nums[varCounter] < instructions.length){
+            int index = (int)(nums[varCounter]++);
+
+            if(profile == null){
+                instructions[index].run(this);
+            }else{
+                long time = Time.nanos();
+                instructions[index].run(this);
+                profile.record(index, Time.timeSinceNanos(time));
+            }
         }
+    }
 
-        if(vars[varCounter].numval < instructions.length){
-            instructions[(int)(vars[varCounter].numval++)].run(this);
+    /**
+     * Runs instructions until the amount is reached or the next instruction is not {@link LInstruction#local() local}.
+     * @return the amount of instructions that were run.
+     * */
+    public int runLocal(int amount){
+        for(int i = 0; i < amount; i++){
+            if(!next().local()) return i;
+            runOnce();
         }
+        return amount;
+    }
+
+    /** @return the instruction that the next call to {@link #runOnce()} will run. */
+    public LInstruction next(){
+        double counter = nums[varCounter];
+        return instructions[counter >= instructions.length || counter < 0 ? 0 : (int)counter];
     }
 
     public void load(String data){
@@ -78,59 +124,97 @@ public class LExecutor{
 
     /** Loads with a specified assembler. Resets all variables. */
     public void load(LAssembler builder){
-        vars = new Var[builder.vars.size];
-        instructions = builder.instructions;
+        loadVars(builder);
+        statementNames = builder.statementNames;
 
-        builder.vars.each((name, var) -> {
-            Var dest = new Var(name);
-            vars[var.id] = dest;
+        if(program != builder.program){
+            if(program != null) program.release();
+            program = builder.program;
+            if(program != null) program.reference();
+        }
 
-            dest.constant = var.constant;
+        if(program != null){
+            instructions = program.instructions(builder);
+        }else{
+            instructions = builder.instructions;
+
+            if(LCompiler.enabled){
+                instructions = LCompiler.compile(builder, instructions);
+            }
+        }
+
+        if(profile != null){
+            profile = new LogicProfiler.Profile(instructions.length);
+        }
+    }
+
+    /** Releases the shared program of this executor. Called when the executor will not be used anymore. */
+    public void unload(){
+        if(program != null){
+            program.release();
+            program = null;
+        }
+    }
+
+    /** Resets all variables to the initial values of an assembler, without loading its instructions. */
+    void loadVars(LAssembler builder){
+        int size = builder.vars.size;
+        names = new String[size];
+        nums = new double[size];
+        objs = new Object[size];
+        isobj = new boolean[size];
+        constant = new boolean[size];
+
+        builder.vars.each((name, var) -> {
+            names[var.id] = name;
+            constant[var.id] = var.constant;
 
             if(var.value instanceof Number number){
-                dest.isobj = false;
-                dest.numval = number.doubleValue();
+                nums[var.id] = number.doubleValue();
             }else{
-                dest.isobj = true;
-                dest.objval = var.value;
+                isobj[var.id] = true;
+                objs[var.id] = var.value;
             }
         });
     }
 
     //region utility
 
-    private static boolean invalid(double d){
+    static boolean invalid(double d){
         return Double.isNaN(d) || Double.isInfinite(d);
     }
 
-    public Var var(int index){
-        //global constants have variable IDs < 0, and they are fetched from the global constants object after being negated
-        return index < 0 ? constants.get(-index) : vars[index];
+    /** @return the ID of the variable with this name, or -1 if there is none. */
+    public int index(String name){
+        for(int i = 0; i < names.length; i++){
+            if(names[i].equals(name)) return i;
+        }
+        return -1;
+    }
+
+    /** @return the value of a variable, with numbers boxed. */
+    public @Nullable Object value(int index){
+        return isobj[index] ? objs[index] : (Object)nums[index];
     }
 
     public @Nullable Building building(int index){
-        Object o = var(index).objval;
-        return var(index).isobj && o instanceof Building building ? building : null;
+        return isobj[index] && objs[index] instanceof Building building ? building : null;
     }
 
     public @Nullable Object obj(int index){
-        Object o = var(index).objval;
-        return var(index).isobj ? o : null;
+        return isobj[index] ? objs[index] : null;
     }
 
     public boolean bool(int index){
-        Var v = var(index);
-        return v.isobj ? v.objval != null : Math.abs(v.numval) >= 0.00001;
+        return isobj[index] ? objs[index] != null : Math.abs(nums[index]) >= 0.00001;
     }
 
     public double num(int index){
-        Var v = var(index);
-        return v.isobj ? v.objval != null ? 1 : 0 : invalid(v.numval) ? 0 : v.numval;
+        return isobj[index] ? objs[index] != null ? 1 : 0 : invalid(nums[index]) ? 0 : nums[index];
     }
 
     public float numf(int index){
-        Var v = var(index);
-        return v.isobj ? v.objval != null ? 1 : 0 : invalid(v.numval) ? 0 : (float)v.numval;
+        return isobj[index] ? objs[index] != null ? 1 : 0 : invalid(nums[index]) ? 0 : (float)nums[index];
     }
 
     public int numi(int index){
@@ -142,29 +226,42 @@ public class LExecutor{
     }
 
     public void setnum(int index, double value){
-        Var v = var(index);
-        if(v.constant) return;
+        if(constant[index]) return;
         if(invalid(value)){
-            v.objval = null;
-            v.isobj = true;
+            objs[index] = null;
+            isobj[index] = true;
         }else{
-            v.numval = value;
-            v.objval = null;
-            v.isobj = false;
+            nums[index] = value;
+            objs[index] = null;
+            isobj[index] = false;
         }
     }
 
     public void setobj(int index, Object value){
-        Var v = var(index);
-        if(v.constant) return;
-        v.objval = value;
-        v.isobj = true;
+        if(constant[index]) return;
+        objs[index] = value;
+        isobj[index] = true;
     }
 
     public void setconst(int index, Object value){
-        Var v = var(index);
-        v.objval = value;
-        v.isobj = true;
+        objs[index] = value;
+        isobj[index] = true;
+    }
+
+    /** Copies the value of one variable to another, ignoring whether the destination is constant. */
+    void copy(int from, int to){
+        if(isobj[from]){
+            objs[to] = objs[from];
+            isobj[to] = true;
+        }else{
+            nums[to] = invalid(nums[from]) ? 0 : nums[from];
+            isobj[to] = false;
+        }
+    }
+
+    /** @return whether two variables hold the same object, or exactly the same number. */
+    boolean strictEqual(int a, int b){
+        return isobj[a] == isobj[b] && (isobj[a] ? objs[a] == objs[b] : nums[a] == nums[b]);
     }
 
     //endregion
@@ -187,6 +284,19 @@ public class LExecutor{
 
     public interface LInstruction{
         void run(LExecutor exec);
+
+        /** @return whether this instruction only uses the executor's own state, which allows it to run on another thread. */
+        default boolean local(){
+            return false;
+        }
+
+        /**
+         * @return whether this instruction has no state of its own, which allows executors with the same program to share it.
+         * Instructions that keep values between runs, or are used as keys for per-processor state, must not override this.
+         */
+        default boolean stateless(){
+            return false;
+        }
     }
 
     /** Binds the processor to a unit based on some filters. */
@@ -200,6 +310,11 @@ public class LExecutor{
         public UnitBindI(){
         }
 
+        @Override
+        public boolean stateless(){
+            return true;
+        }
+
         @Override
         public void run(LExecutor exec){
 
@@ -354,6 +469,11 @@ public class LExecutor{
             return null;
         }
 
+        @Override
+        public boolean stateless(){
+            return true;
+        }
+
         @Override
         public void run(LExecutor exec){
             Object unitObj = exec.obj(varUnit);
@@ -552,11 +672,16 @@ public class LExecutor{
 
         ControlI(){}
 
+        @Override
+        public boolean stateless(){
+            return true;
+        }
+
         @Override
         public void run(LExecutor exec){
             Object obj = exec.obj(target);
             if(obj instanceof Building b && b.team == exec.team && exec.linkIds.contains(b.id)){
-                if(type.isObj && exec.var(p1).isobj){
+                if(type.isObj && exec.isobj[p1]){
                     b.control(type, exec.obj(p1), exec.num(p2), exec.num(p3), exec.num(p4));
                 }else{
                     b.control(type, exec.num(p1), exec.num(p2), exec.num(p3), exec.num(p4));
@@ -576,12 +701,22 @@ public class LExecutor{
         public GetLinkI(){
         }
 
+        @Override
+        public boolean stateless(){
+            return true;
+        }
+
         @Override
         public void run(LExecutor exec){
             int address = exec.numi(index);
 
             exec.setobj(output, address >= 0 && address < exec.links.length ? exec.links[address] : null);
         }
+
+        @Override
+        public boolean local(){
+            return true;
+        }
     }
 
     public static class ReadI implements LInstruction{
@@ -596,6 +731,11 @@ public class LExecutor{
         public ReadI(){
         }
 
+        @Override
+        public boolean stateless(){
+            return true;
+        }
+
         @Override
         public void run(LExecutor exec){
             int address = exec.numi(position);
@@ -620,6 +760,11 @@ public class LExecutor{
         public WriteI(){
         }
 
+        @Override
+        public boolean stateless(){
+            return true;
+        }
+
         @Override
         public void run(LExecutor exec){
             int address = exec.numi(position);
@@ -647,6 +792,11 @@ public class LExecutor{
         public SenseI(){
         }
 
+        @Override
+        public boolean stateless(){
+            return true;
+        }
+
         @Override
         public void run(LExecutor exec){
             Object target = exec.obj(from);
@@ -785,20 +935,21 @@ public class LExecutor{
         SetI(){}
 
         @Override
-        public void run(LExecutor exec){
-            Var v = exec.var(to);
-            Var f = exec.var(from);
+        public boolean stateless(){
+            return true;
+        }
 
-            if(!v.constant){
-                if(f.isobj){
-                    v.objval = f.objval;
-                    v.isobj = true;
-                }else{
-                    v.numval = invalid(f.numval) ? 0 : f.numval;
-                    v.isobj = false;
-                }
+        @Override
+        public void run(LExecutor exec){
+            if(!exec.constant[to]){
+                exec.copy(from, to);
             }
         }
+
+        @Override
+        public boolean local(){
+            return true;
+        }
     }
 
     public static class OpI implements LInstruction{
@@ -814,18 +965,19 @@ public class LExecutor{
 
         OpI(){}
 
+        @Override
+        public boolean stateless(){
+            return true;
+        }
+
         @Override
         public void run(LExecutor exec){
             if(op == LogicOp.strictEqual){
-                Var v = exec.var(a), v2 = exec.var(b);
-                exec.setnum(dest, v.isobj == v2.isobj && ((v.isobj && v.objval == v2.objval) || (!v.isobj && v.numval == v2.numval)) ? 1 : 0);
+                exec.setnum(dest, exec.strictEqual(a, b) ? 1 : 0);
             }else if(op.unary){
                 exec.setnum(dest, op.function1.get(exec.num(a)));
             }else{
-                Var va = exec.var(a);
-                Var vb = exec.var(b);
-
-                if(op.objFunction2 != null && va.isobj && vb.isobj){
+                if(op.objFunction2 != null && exec.isobj[a] && exec.isobj[b]){
                     //use object function if both are objects
                     exec.setnum(dest, op.objFunction2.get(exec.obj(a), exec.obj(b)));
                 }else{
@@ -835,19 +987,45 @@ public class LExecutor{
 
             }
         }
+
+        @Override
+        public boolean local(){
+            //the random generator is shared by all processors
+            return op != LogicOp.rand;
+        }
     }
 
     public static class EndI implements LInstruction{
 
+        @Override
+        public boolean stateless(){
+            return true;
+        }
+
         @Override
         public void run(LExecutor exec){
-            exec.var(varCounter).numval = exec.instructions.length;
+            exec.nums[varCounter] = exec.instructions.length;
+        }
+
+        @Override
+        public boolean local(){
+            return true;
         }
     }
 
     public static class NoopI implements LInstruction{
+        @Override
+        public boolean stateless(){
+            return true;
+        }
+
         @Override
         public void run(LExecutor exec){}
+
+        @Override
+        public boolean local(){
+            return true;
+        }
     }
 
     public static class DrawI implements LInstruction{
@@ -869,6 +1047,11 @@ public class LExecutor{
         public DrawI(){
         }
 
+        @Override
+        public boolean stateless(){
+            return true;
+        }
+
         @Override
         public void run(LExecutor exec){
             //graphics on headless servers are useless.
@@ -886,6 +1069,11 @@ public class LExecutor{
             }
         }
 
+        @Override
+        public boolean local(){
+            return true;
+        }
+
         static int packSign(int value){
             return (Math.abs(value) & 0b0111111111) | (value < 0 ? 0b1000000000 : 0);
         }
@@ -901,6 +1089,11 @@ public class LExecutor{
         public DrawFlushI(){
         }
 
+        @Override
+        public boolean stateless(){
+            return true;
+        }
+
         @Override
         public void run(LExecutor exec){
             //graphics on headless servers are useless.
@@ -926,27 +1119,37 @@ public class LExecutor{
 
         PrintI(){}
 
+        @Override
+        public boolean stateless(){
+            return true;
+        }
+
         @Override
         public void run(LExecutor exec){
 
             if(exec.textBuffer.length() >= maxTextBuffer) return;
 
             //this should avoid any garbage allocation
-            Var v = exec.var(value);
-            if(v.isobj && value != 0){
-                String strValue = toString(v.objval);
+            if(exec.isobj[value] && value != 0){
+                String strValue = toString(exec.objs[value]);
 
                 exec.textBuffer.append(strValue);
             }else{
+                double num = exec.nums[value];
                 //display integer version when possible
-                if(Math.abs(v.numval - (long)v.numval) < 0.00001){
-                    exec.textBuffer.append((long)v.numval);
+                if(Math.abs(num - (long)num) < 0.00001){
+                    exec.textBuffer.append((long)num);
                 }else{
-                    exec.textBuffer.append(v.numval);
+                    exec.textBuffer.append(num);
                 }
             }
         }
 
+        @Override
+        public boolean local(){
+            return true;
+        }
+
         public static String toString(Object obj){
             return
                 obj == null ? "null" :
@@ -971,6 +1174,11 @@ public class LExecutor{
         public PrintFlushI(){
         }
 
+        @Override
+        public boolean stateless(){
+            return true;
+        }
+
         @Override
         public void run(LExecutor exec){
 
@@ -998,16 +1206,19 @@ public class LExecutor{
         public JumpI(){
         }
 
+        @Override
+        public boolean stateless(){
+            return true;
+        }
+
         @Override
         public void run(LExecutor exec){
             if(address != -1){
-                Var va = exec.var(value);
-                Var vb = exec.var(compare);
                 boolean cmp;
 
                 if(op == ConditionOp.strictEqual){
-                    cmp = va.isobj == vb.isobj && ((va.isobj && va.objval == vb.objval) || (!va.isobj && va.numval == vb.numval));
-                }else if(op.objFunction != null && va.isobj && vb.isobj){
+                    cmp = exec.strictEqual(value, compare);
+                }else if(op.objFunction != null && exec.isobj[value] && exec.isobj[compare]){
                     //use object function if both are objects
                     cmp = op.objFunction.get(exec.obj(value), exec.obj(compare));
                 }else{
@@ -1015,10 +1226,15 @@ public class LExecutor{
                 }
 
                 if(cmp){
-                    exec.var(varCounter).numval = address;
+                    exec.nums[varCounter] = address;
                 }
             }
         }
+
+        @Override
+        public boolean local(){
+            return true;
+        }
     }
 
     public static class WaitI implements LInstruction{
@@ -1042,7 +1258,7 @@ public class LExecutor{
                 curTime = 0f;
             }else{
                 //skip back to self.
-                exec.var(varCounter).numval --;
+                exec.nums[varCounter] --;
             }
 
             if(Core.graphics.getFrameId() != frameId){
@@ -1050,6 +1266,11 @@ public class LExecutor{
                 frameId = Core.graphics.getFrameId();
             }
         }
+
+        @Override
+        public boolean local(){
+            return true;
+        }
     }
 
     public static class LookupI implements LInstruction{
@@ -1066,10 +1287,20 @@ public class LExecutor{
         public LookupI(){
         }
 
+        @Override
+        public boolean stateless(){
+            return true;
+        }
+
         @Override
         public void run(LExecutor exec){
             exec.setobj(dest, constants.lookupContent(type, exec.numi(from)));
         }
+
+        @Override
+        public boolean local(){
+            return true;
+        }
     }
 
 
@@ -83,34 +83,43 @@ public class LogicDialog extends BaseDialog{
                 p.margin(10f).marginRight(16f);
                 p.table(Tex.button, t -> {
                     t.defaults().fillX().height(45f);
-                    for(var s : executor.vars){
-                        if(s.constant) continue;
+                    //capture the arrays, so the labels keep showing the values of this program if the processor is reloaded
+                    String[] names = executor.names;
+                    double[] nums = executor.nums;
+                    Object[] objs = executor.objs;
+                    boolean[] isobj = executor.isobj;
+
+                    for(int i = 0; i < names.length; i++){
+                        if(executor.constant[i]) continue;
+
+                        int index = i;
+                        Object value = objs[i];
 
                         Color varColor = Pal.gray;
                         float stub = 8f, mul = 0.5f, pad = 4;
 
                         Color color =
-                            !s.isobj ? Pal.place :
-                            s.objval == null ? Color.darkGray :
-                            s.objval instanceof String ? Pal.ammo :
-                            s.objval instanceof Content ? Pal.logicOperations :
-                            s.objval instanceof Building ? Pal.logicBlocks :
-                            s.objval instanceof Unit ? Pal.logicUnits :
-                            s.objval instanceof Enum<?> ? Pal.logicIo :
+                            !isobj[i] ? Pal.place :
+                            value == null ? Color.darkGray :
+                            value instanceof String ? Pal.ammo :
+                            value instanceof Content ? Pal.logicOperations :
+                            value instanceof Building ? Pal.logicBlocks :
+                            value instanceof Unit ? Pal.logicUnits :
+                            value instanceof Enum<?> ? Pal.logicIo :
                             Color.white;
 
                         String typeName =
-                            !s.isobj ? "number" :
-                            s.objval == null ? "null" :
-                            s.objval instanceof String ? "string" :
-                            s.objval instanceof Content ? "content" :
-                            s.objval instanceof Building ? "building" :
-                            s.objval instanceof Unit ? "unit" :
-                            s.objval instanceof Enum<?> ? "enum" :
+                            !isobj[i] ? "number" :
+                            value == null ? "null" :
+                            value instanceof String ? "string" :
+                            value instanceof Content ? "content" :
+                            value instanceof Building ? "building" :
+                            value instanceof Unit ? "unit" :
+                            value instanceof Enum<?> ? "enum" :
                             "unknown";
 
                         t.add(new Image(Tex.whiteui, varColor.cpy().mul(mul))).width(stub);
-                        t.stack(new Image(Tex.whiteui, varColor), new Label(" " + s.name + " ", Styles.outlineLabel){{
+                        t.stack(new Image(Tex.whiteui, varColor), new Label(" " + names[i] + " ", Styles.outlineLabel){{
                             setColor(Pal.accent);
                         }}).padRight(pad);
 
@@ -121,7 +130,7 @@ public class LogicDialog extends BaseDialog{
                             Label label = out.add("").style(Styles.outlineLabel).padLeft(4).padRight(4).width(140f).wrap().get();
                             label.update(() -> {
                                 if(counter[0] < 0 || (counter[0] += Time.delta) >= period){
-                                    String text = s.isobj ? PrintI.toString(s.objval) : Math.abs(s.numval - (long)s.numval) < 0.00001 ? (long)s.numval + "" : s.numval + "";
+                                    String text = isobj[index] ? PrintI.toString(objs[index]) : Math.abs(nums[index] - (long)nums[index]) < 0.00001 ? (long)nums[index] + "" : nums[index] + "";
                                     if(!label.textEquals(text)){
                                         label.setText(text);
                                         if(counter[0] >= 0f){
@@ -147,7 +156,7 @@ public class LogicDialog extends BaseDialog{
 
             dialog.addCloseButton();
             dialog.show();
-        }).name("variables").disabled(b -> executor == null || executor.vars.length == 0);
+        }).name("variables").disabled(b -> executor == null || executor.names.length == 0);
 
         buttons.button("@add", Icon.add, () -> {
             BaseDialog dialog = new BaseDialog("@add");
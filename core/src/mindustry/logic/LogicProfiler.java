@@ -0,0 +1,139 @@
+package mindustry.logic;
+
+import arc.*;
+import arc.struct.*;
+import arc.util.*;
+import mindustry.game.EventType.*;
+import mindustry.logic.LExecutor.*;
+import mindustry.world.blocks.logic.LogicBlock.*;
+
+import java.util.*;
+
+/**
+ * Records how many instructions logic processors run and how long they take, per processor and per statement type.
+ * When disabled, executors have no {@link Profile} and the only cost is a null check per instruction.
+ * Profiles are only written by the thread that runs their executor, and should only be read on the update thread.
+ */
+public class LogicProfiler{
+    private final ObjectSet<LogicBuild> builds = new ObjectSet<>();
+    private boolean enabled;
+    private long startTime;
+
+    public LogicProfiler(){
+        Events.on(ResetEvent.class, e -> builds.clear());
+    }
+
+    public boolean enabled(){
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled){
+        if(this.enabled == enabled) return;
+
+        this.enabled = enabled;
+        startTime = Time.millis();
+
+        if(!enabled){
+            for(LogicBuild build : builds){
+                build.executor.profile = null;
+            }
+            builds.clear();
+        }
+    }
+
+    /** Clears all recorded data, without disabling the profiler. */
+    public void reset(){
+        for(LogicBuild build : builds){
+            if(build.executor.profile != null) build.executor.profile.clear();
+        }
+        startTime = Time.millis();
+    }
+
+    /** @return milliseconds since data started being recorded. */
+    public long duration(){
+        return Time.timeSinceMillis(startTime);
+    }
+
+    /** Starts profiling a processor, if it is not profiled already. Called by processors in their update. */
+    public void track(LogicBuild build){
+        if(build.executor.profile == null){
+            build.executor.profile = new Profile(build.executor.instructions.length);
+            builds.add(build);
+        }
+    }
+
+    /** @return the processors that took the most time, slowest first. */
+    public Seq<LogicBuild> topBuilds(int amount){
+        Seq<LogicBuild> out = new Seq<>();
+        for(LogicBuild build : builds){
+            if(build.isValid() && build.executor.profile != null){
+                out.add(build);
+            }
+        }
+
+        out.sort(Structs.comparingLong(b -> -b.executor.profile.time));
+        out.truncate(Math.min(amount, out.size));
+        return out;
+    }
+
+    /** @return the statement types that took the most time across all processors, slowest first. Compiled instructions are counted as the statement they were compiled from. */
+    public Seq<InstructionStats> topInstructions(int amount){
+        ObjectMap<String, InstructionStats> stats = new ObjectMap<>();
+
+        for(LogicBuild build : builds){
+            Profile profile = build.executor.profile;
+            LInstruction[] instructions = build.executor.instructions;
+            String[] names = build.executor.statementNames;
+            if(!build.isValid() || profile == null || profile.counts.length != instructions.length) continue;
+
+            for(int i = 0; i < instructions.length; i++){
+                if(profile.counts[i] == 0) continue;
+
+                String name = names != null && i < names.length ? names[i] : instructions[i].getClass().getSimpleName();
+                InstructionStats stat = stats.get(name, () -> new InstructionStats(name));
+                stat.count += profile.counts[i];
+                stat.time += profile.times[i];
+            }
+        }
+
+        Seq<InstructionStats> out = stats.values().toSeq();
+        out.sort(Structs.comparingLong(s -> -s.time));
+        out.truncate(Math.min(amount, out.size));
+        return out;
+    }
+
+    /** Counts and times of every instruction in the program of a single executor. */
+    public static class Profile{
+        public final long[] counts, times;
+        /** Totals across all instructions. Times are in nanoseconds. */
+        public long count, time;
+
+        public Profile(int instructions){
+            counts = new long[instructions];
+            times = new long[instructions];
+        }
+
+        void record(int index, long nanos){
+            counts[index]++;
+            times[index] += nanos;
+            count++;
+            time += nanos;
+        }
+
+        public void clear(){
+            Arrays.fill(counts, 0);
+            Arrays.fill(times, 0);
+            count = time = 0;
+        }
+    }
+
+    public static class InstructionStats{
+        public final String name;
+        /** Times are in nanoseconds. */
+        public long count, time;
+
+        public InstructionStats(String name){
+            this.name = name;
+        }
+    }
+}
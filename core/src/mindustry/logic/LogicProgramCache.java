@@ -0,0 +1,112 @@
+package mindustry.logic;
+
+import arc.*;
+import arc.struct.*;
+import arc.util.*;
+import mindustry.game.EventType.*;
+import mindustry.logic.LExecutor.*;
+
+/**
+ * Shares assembled and compiled programs between processors with identical code and links, which is common for schematics.
+ * Programs are keyed by their code, the names of their links, as links change which variables are constant, and whether they are compiled.
+ * Processors that share a program only allocate their own variables. Programs with any instruction that is not
+ * {@link LInstruction#stateless() stateless} are never shared, so each processor assembles its own.
+ * A program is evicted once no executor references it.
+ */
+public class LogicProgramCache{
+    private final ObjectMap<String, Program> programs = new ObjectMap<>();
+
+    /** Amount of times a program was found in the cache, or had to be assembled. */
+    public int hits, misses;
+
+    public LogicProgramCache(){
+        Events.on(ResetEvent.class, e -> programs.clear());
+    }
+
+    /**
+     * @param links names of the links that will be added as constants to the assembler.
+     * @return a new assembler with the variables and instructions of the code, which executors load the shared program from, if it can be shared.
+     */
+    public LAssembler assemble(String code, Seq<String> links){
+        boolean compile = LCompiler.enabled;
+        StringBuilder key = new StringBuilder(code.length() + links.size * 8).append(compile).append('\0').append(code);
+        for(String link : links){
+            key.append('\0').append(link);
+        }
+
+        String k = key.toString();
+        Program program = programs.get(k);
+
+        if(program == null){
+            misses++;
+            LAssembler assembled = LAssembler.assemble(code);
+
+            //instructions with state can't be shared, so neither can the program
+            if(Structs.contains(assembled.instructions, i -> !i.stateless())){
+                return assembled;
+            }
+
+            program = new Program(k, assembled, compile);
+            programs.put(k, program);
+        }else{
+            hits++;
+        }
+
+        LAssembler asm = program.template.copy();
+        asm.program = program;
+        return asm;
+    }
+
+    /**
+     * Evicts the program of an assembler that was never loaded, if no executor references it.
+     * Must be called when loading fails after {@link #assemble}, as the program would otherwise stay in the cache.
+     */
+    public void discard(LAssembler asm){
+        Program program = asm.program;
+        if(program != null && program.references <= 0 && programs.get(program.key) == program){
+            programs.remove(program.key);
+        }
+    }
+
+    /** @return the amount of distinct programs in the cache. */
+    public int size(){
+        return programs.size;
+    }
+
+    /** An assembled program, shared by every executor that loads it. */
+    public class Program{
+        final String key;
+        /** Assembler of the code, before any variables of a specific processor were added. Never modified. */
+        final LAssembler template;
+        /** Whether the instructions are compiled. Read when the program is created, as the setting may change before it is loaded. */
+        final boolean compile;
+        @Nullable LInstruction[] instructions;
+        int references;
+
+        Program(String key, LAssembler template, boolean compile){
+            this.key = key;
+            this.template = template;
+            this.compile = compile;
+        }
+
+        /** @return the instructions for a new executor of this program. These are shared, as all of them are stateless. */
+        LInstruction[] instructions(LAssembler asm){
+            if(instructions == null){
+                //all processors with this program have the same constants, so it only needs to be compiled once
+                instructions = compile ? LCompiler.compile(asm, template.instructions) : template.instructions;
+            }
+            return instructions;
+        }
+
+        void reference(){
+            references++;
+        }
+
+        void release(){
+            //the cache may have been cleared since this program was referenced
+            if(--references <= 0 && programs.get(key) == this){
+                programs.remove(key);
+            }
+        }
+    }
+}
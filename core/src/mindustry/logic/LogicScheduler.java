@@ -0,0 +1,185 @@
+package mindustry.logic;
+
+import arc.*;
+import arc.struct.*;
+import arc.util.*;
+import arc.util.async.*;
+import mindustry.game.EventType.*;
+import mindustry.gen.*;
+
+import java.util.concurrent.*;
+
+/**
+ * Runs the instruction budgets of logic processors on a worker pool. Processors submit their budget during their update,
+ * and all budgets are run together after entities have been updated, in rounds:
+ * <ol>
+ * <li>Every processor runs {@link LExecutor.LInstruction#local() local} instructions on the pool, until its budget runs out
+ * or it reaches an instruction that reads or modifies the world.</li>
+ * <li>On the update thread, each processor that stopped at such an instruction runs it (and any that directly follow it),
+ * in the order processors were submitted in.</li>
+ * </ol>
+ * Local instructions only touch the state of their own processor, so the results do not depend on the amount of threads.
+ */
+public class LogicScheduler{
+    //processors are split into this many chunks per thread, so threads that finish early can pick up more work
+    private static final int chunksPerThread = 4;
+    //when fewer processors than this still have budget left, the local instructions are run on the update thread
+    private static final int minParallel = 8;
+
+    private final Seq<LExecutor> executors = new Seq<>(LExecutor.class);
+    private final IntSeq budgets = new IntSeq();
+    private final Seq<Callable<Object>> tasks = new Seq<>();
+    private @Nullable ExecutorService pool;
+    private int threads;
+
+    /** Time taken by the last update, in nanoseconds. */
+    public long updateTime;
+    /** Amount of rounds the last update took. */
+    public int rounds;
+
+    public LogicScheduler(){
+        Events.on(ResetEvent.class, e -> {
+            executors.clear();
+            budgets.clear();
+        });
+    }
+
+    /** Sets the amount of threads used. 0 disables the scheduler, which makes processors run in their own update. */
+    public void setThreads(int threads){
+        if(this.threads == threads) return;
+
+        if(pool != null){
+            pool.shutdown();
+            pool = null;
+        }
+
+        this.threads = threads;
+
+        if(threads > 1){
+            pool = Executors.newFixedThreadPool(threads, r -> {
+                Thread thread = new Thread(r, "Logic-Worker");
+                thread.setDaemon(true);
+                thread.setUncaughtExceptionHandler((t, e) -> Threads.throwAppException(e));
+                return thread;
+            });
+        }
+    }
+
+    public int threads(){
+        return threads;
+    }
+
+    /** @return whether processors should submit their instructions to this scheduler. */
+    public boolean active(){
+        return threads > 0;
+    }
+
+    /** Queues instructions of a processor to run in the next update. */
+    public void submit(LExecutor exec, int amount){
+        if(amount <= 0) return;
+
+        executors.add(exec);
+        budgets.add(amount);
+    }
+
+    /** Runs all submitted instructions. Update thread only. */
+    public void update(){
+        if(executors.isEmpty()) return;
+
+        long start = Time.nanos();
+        rounds = 0;
+
+        boolean remaining = true;
+        while(remaining){
+            rounds++;
+            remaining = false;
+
+            runLocal();
+
+            for(int i = 0; i < executors.size; i++){
+                if(budgets.items[i] <= 0) continue;
+
+                LExecutor exec = executors.items[i];
+
+                //world instructions of other processors may have changed this processor's code or destroyed it
+                if(!runnable(exec)){
+                    budgets.items[i] = 0;
+                    continue;
+                }
+
+                long time = Time.nanos();
+
+                do{
+                    exec.runOnce();
+                    budgets.items[i]--;
+                }while(budgets.items[i] > 0 && !exec.next().local());
+
+                exec.cpuTime += Time.timeSinceNanos(time);
+                remaining |= budgets.items[i] > 0;
+            }
+        }
+
+        executors.clear();
+        budgets.clear();
+        updateTime = Time.timeSinceNanos(start);
+    }
+
+    /** @return whether a processor can still run: its program is loaded, and its building has not been removed. */
+    private static boolean runnable(LExecutor exec){
+        if(!exec.initialized()) return false;
+
+        Building build = exec.building(LExecutor.varThis);
+        return build == null || build.isValid();
+    }
+
+    private void runLocal(){
+        int active = 0;
+        for(int i = 0; i < budgets.size; i++){
+            if(budgets.items[i] > 0) active++;
+        }
+
+        if(pool == null || active < minParallel){
+            runLocal(0, executors.size);
+            return;
+        }
+
+        int chunks = Math.min(threads * chunksPerThread, executors.size);
+
+        tasks.clear();
+        for(int i = 0; i < chunks; i++){
+            int from = executors.size * i / chunks, to = executors.size * (i + 1) / chunks;
+            tasks.add(() -> {
+                runLocal(from, to);
+                return null;
+            });
+        }
+
+        try{
+            for(Future<Object> future : pool.invokeAll(tasks.list())){
+                future.get();
+            }
+        }catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+        }catch(ExecutionException e){
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private void runLocal(int from, int to){
+        for(int i = from; i < to; i++){
+            if(budgets.items[i] <= 0) continue;
+
+            LExecutor exec = executors.items[i];
+
+            //the program may have been replaced with an empty one, or the processor destroyed, since it was submitted
+            if(!runnable(exec)){
+                budgets.items[i] = 0;
+                continue;
+            }
+
+            long time = Time.nanos();
+            budgets.items[i] -= exec.runLocal(budgets.items[i]);
+            exec.cpuTime += Time.timeSinceNanos(time);
+        }
+    }
+}
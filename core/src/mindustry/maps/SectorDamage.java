@@ -190,7 +190,6 @@ public class SectorDamage{
         boolean found = false;
 
         if(field != null && field.weights != null){
-            int[][] weights = field.weights;
             int count = 0;
             Tile current = start;
             while(count < world.width() * world.height()){
@@ -200,8 +199,8 @@ public class SectorDamage{
                     int nx = cx + p.x, ny = cy + p.y;
 
                     Tile other = world.tile(nx, ny);
-                    if(other != null && weights[nx][ny] < minCost && weights[nx][ny] != -1){
-                       minCost = weights[nx][ny];
+                    if(other != null && field.weight(nx, ny) < minCost && field.weight(nx, ny) != -1){
+                       minCost = field.weight(nx, ny);
                        current = other;
                     }
                 }
@@ -0,0 +1,143 @@
+package mindustry.mod;
+
+import arc.files.*;
+import arc.struct.*;
+import arc.util.*;
+import arc.util.io.*;
+import arc.util.serialization.*;
+import arc.util.serialization.JsonWriter.*;
+import mindustry.core.*;
+import mindustry.io.*;
+import mindustry.mod.Mods.*;
+
+import java.io.*;
+import java.util.zip.*;
+
+/**
+ * Caches the parsed JSON trees of mod content files between launches, so unchanged mods do not need their files read
+ * from archives and converted from HJSON again. Entries are validated with the size and modification time of the mod archive
+ * (or of the file itself for mods that are directories), and the whole cache is discarded when the game version changes.
+ * Content is always created from the trees again, so the result does not depend on whether the cache was used.
+ * Lookups may happen from multiple threads.
+ */
+public class ContentCache{
+    /** Cache format header. */
+    public static final byte[] header = {'M', 'C', 'C', 'H'};
+    public static final int version = 1;
+
+    private final Fi file;
+    private final ObjectMap<String, Entry> entries = new ObjectMap<>();
+    /** Keys of the entries that were used in this launch; others are not written back. */
+    private final ObjectSet<String> used = new ObjectSet<>();
+    private boolean changed;
+
+    /** Amount of files that were found in the cache, or had to be parsed. */
+    public int hits, misses;
+
+    public ContentCache(Fi file){
+        this.file = file;
+        load();
+    }
+
+    /** @return the JSON tree of a content file, from the cache if it has not changed. */
+    public JsonValue get(LoadedMod mod, Fi content){
+        String key = mod.name + ":" + content.path();
+        //files in archives have no reliable modification time of their own, so the archive is checked instead
+        Fi source = mod.file.isDirectory() ? content : mod.file;
+        long length = source.length(), modified = source.lastModified();
+
+        Entry entry;
+        synchronized(this){
+            used.add(key);
+            entry = entries.get(key);
+        }
+
+        if(entry != null && entry.length == length && entry.modified == modified){
+            JsonValue tree = new JsonReader().parse(entry.json);
+            synchronized(this){
+                hits++;
+            }
+            return tree;
+        }
+
+        JsonValue tree = ContentParser.readTree(content.readString("UTF-8"), content);
+
+        Entry result = new Entry();
+        result.length = length;
+        result.modified = modified;
+        result.json = tree.toJson(OutputType.json);
+
+        synchronized(this){
+            misses++;
+            entries.put(key, result);
+            changed = true;
+        }
+        return tree;
+    }
+
+    /** Writes the cache to disk, if any entries were added or became unused. */
+    public synchronized void save(){
+        if(!changed && used.size == entries.size) return;
+
+        try(DataOutputStream stream = new DataOutputStream(new FastDeflaterOutputStream(file.write(false, 8192)))){
+            stream.write(header);
+            stream.writeInt(version);
+            stream.writeUTF(Version.combined());
+
+            int count = 0;
+            for(var e : entries){
+                if(used.contains(e.key)) count++;
+            }
+
+            stream.writeInt(count);
+            for(var e : entries){
+                if(!used.contains(e.key)) continue;
+
+                stream.writeUTF(e.key);
+                stream.writeLong(e.value.length);
+                stream.writeLong(e.value.modified);
+                //content files may be longer than writeUTF allows
+                byte[] bytes = e.value.json.getBytes(Strings.utf8);
+                stream.writeInt(bytes.length);
+                stream.write(bytes);
+            }
+            changed = false;
+        }catch(Throwable e){
+            Log.err("Failed to write content cache", e);
+            file.delete();
+        }
+    }
+
+    private void load(){
+        if(!file.exists()) return;
+
+        try(DataInputStream stream = new DataInputStream(new InflaterInputStream(file.read(8192)))){
+            SaveIO.readHeader(stream, header);
+            //content files are parsed differently between versions
+            if(stream.readInt() != version || !stream.readUTF().equals(Version.combined())){
+                return;
+            }
+
+            int count = stream.readInt();
+            for(int i = 0; i < count; i++){
+                String key = stream.readUTF();
+                Entry entry = new Entry();
+                entry.length = stream.readLong();
+                entry.modified = stream.readLong();
+                byte[] json = new byte[stream.readInt()];
+                stream.readFully(json);
+                entry.json = new String(json, Strings.utf8);
+                entries.put(key, entry);
+            }
+        }catch(Throwable e){
+            //the cache is rebuilt on the next save
+            Log.warn("Discarding invalid content cache: @", e.toString());
+            entries.clear();
+        }
+    }
+
+    static class Entry{
+        long length, modified;
+        String json;
+    }
+}
@@ -519,16 +519,32 @@ public class ContentParser{
      * @return the content that was parsed
      */
     public Content parse(LoadedMod mod, String name, String json, Fi file, ContentType type) throws Exception{
-        if(contentTypes.isEmpty()){
-            init();
-        }
+        return parse(mod, name, readTree(json, file), file, type);
+    }
 
+    /**
+     * Reads the text of a content file into a JSON tree. This does not depend on any parser state, so it can be called from any thread.
+     * @param file file that this json is from, used to determine its format
+     */
+    public static JsonValue readTree(String json, Fi file){
         //remove extra # characters to make it valid json... apparently some people have *unquoted* # characters in their json
         if(file.extension().equals("json")){
             json = json.replace("#", "\\#");
         }
 
-        JsonValue value = parser.fromJson(null, Jval.read(json).toString(Jformat.plain));
+        return new JsonReader().parse(Jval.read(json).toString(Jformat.plain));
+    }
+
+    /**
+     * Parses content from a json tree created by {@link #readTree(String, Fi)}.
+     * @see #parse(LoadedMod, String, String, Fi, ContentType)
+     */
+    public Content parse(LoadedMod mod, String name, JsonValue tree, Fi file, ContentType type) throws Exception{
+        if(contentTypes.isEmpty()){
+            init();
+        }
+
+        JsonValue value = parser.readValue(null, null, tree);
 
         if(!parsers.containsKey(type)){
             throw new SerializationException("No parsers for content type '" + type + "'");
@@ -27,6 +27,7 @@ import mindustry.ui.*;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 import static mindustry.Vars.*;
 
@@ -631,11 +632,53 @@ public class Mods implements Loadable{
 
         //make sure mod content is in proper order
         runs.sort();
+
+        //reading files and parsing json does not depend on other content, so it is done in parallel
+        Seq<Future<JsonValue>> trees = new Seq<>(runs.size);
+        ContentCache cache = runs.isEmpty() || !Core.settings.getBool("contentcache", true) ? null : new ContentCache(modDirectory.child("content.cache"));
+        ObjectMap<LoadedMod, long[]> parseTimes = new ObjectMap<>();
+        ExecutorService executor = runs.size > 1 ? Executors.newFixedThreadPool(Math.min(OS.cores, runs.size), r -> {
+            Thread thread = new Thread(r, "Content-Parser");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+
         for(LoadRun l : runs){
+            long[] time = parseTimes.get(l.mod, () -> new long[1]);
+            Callable<JsonValue> task = () -> {
+                long start = Time.nanos();
+                try{
+                    return cache != null ? cache.get(l.mod, l.file) : ContentParser.readTree(l.file.readString("UTF-8"), l.file);
+                }finally{
+                    synchronized(time){
+                        time[0] += Time.timeSinceNanos(start);
+                    }
+                }
+            };
+
+            if(executor != null){
+                trees.add(executor.submit(task));
+            }else{
+                FutureTask<JsonValue> future = new FutureTask<>(task);
+                future.run();
+                trees.add(future);
+            }
+        }
+
+        //content is registered in order, so IDs do not depend on which files were parsed first
+        for(int i = 0; i < runs.size; i++){
+            LoadRun l = runs.get(i);
             Content current = content.getLastAdded();
             try{
+                JsonValue tree;
+                try{
+                    tree = trees.get(i).get();
+                }catch(ExecutionException e){
+                    throw e.getCause();
+                }
+
                 //this binds the content but does not load it entirely
-                Content loaded = parser.parse(l.mod, l.file.nameWithoutExtension(), l.file.readString("UTF-8"), l.file, l.type);
+                Content loaded = parser.parse(l.mod, l.file.nameWithoutExtension(), tree, l.file, l.type);
                 Log.debug("[@] Loaded '@'.", l.mod.meta.name, (loaded instanceof UnlockableContent u ? u.localizedName : loaded));
             }catch(Throwable e){
                 if(current != content.getLastAdded() && content.getLastAdded() != null){
@@ -647,6 +690,17 @@ public class Mods implements Loadable{
             }
         }
 
+        if(executor != null) executor.shutdown();
+
+        if(cache != null){
+            Log.debug("Content cache: @ files cached, @ parsed.", cache.hits, cache.misses);
+            cache.save();
+        }
+
+        for(var entry : parseTimes){
+            Log.debug("[@] Parsed content files in @ms (total thread time).", entry.key.meta.name, Strings.fixed(entry.value[0] / 1000000f, 2));
+        }
+
         //this finishes parsing content fields
         parser.finishParsing();
     }
@@ -8,7 +8,9 @@ import arc.util.Log.*;
 import arc.util.pooling.Pool.*;
 import arc.util.pooling.*;
 import mindustry.*;
+import mindustry.async.*;
 import mindustry.gen.*;
+import mindustry.logic.*;
 import mindustry.type.*;
 import mindustry.world.*;
 
@@ -23,8 +25,8 @@ public class Administration{
     public Seq<String> subnetBans = new Seq<>();
     public ObjectMap<String, Long> kickedIPs = new ObjectMap<>();
 
-    /** All player info. Maps UUIDs to info. This persists throughout restarts. Do not access directly. */
-    private ObjectMap<String, PlayerInfo> playerInfo = new ObjectMap<>();
+    /** All player info, indexed by UUID, IP and name. This persists throughout restarts. Do not access directly. */
+    private PlayerDatabase playerInfo;
 
     public Administration(){
         load();
@@ -95,6 +97,7 @@ public class Administration{
         PlayerInfo info = getInfo(uuid);
         info.timesKicked++;
         info.lastKicked = Math.max(Time.millis() + duration, info.lastKicked);
+        playerInfo.touch(info);
     }
 
     public Seq<String> getSubnetBans(){
@@ -185,6 +188,7 @@ public class Administration{
         info.timesJoined++;
         if(!info.names.contains(name, false)) info.names.add(name);
         if(!info.ips.contains(ip, false)) info.ips.add(ip);
+        playerInfo.update(info);
     }
 
     public boolean banPlayer(String uuid){
@@ -199,10 +203,9 @@ public class Administration{
         if(bannedIPs.contains(ip, false))
             return false;
 
-        for(PlayerInfo info : playerInfo.values()){
-            if(info.ips.contains(ip, false)){
-                info.banned = true;
-            }
+        for(PlayerInfo info : playerInfo.byIP(ip)){
+            info.banned = true;
+            playerInfo.touch(info);
         }
 
         bannedIPs.add(ip);
@@ -213,10 +216,13 @@ public class Administration{
 
     /** Bans a player by UUID; returns whether this player was already banned. */
     public boolean banPlayerID(String id){
-        if(playerInfo.containsKey(id) && playerInfo.get(id).banned)
+        PlayerInfo existing = playerInfo.get(id);
+        if(existing != null && existing.banned)
             return false;
 
-        getCreateInfo(id).banned = true;
+        PlayerInfo info = getCreateInfo(id);
+        info.banned = true;
+        playerInfo.touch(info);
 
         save();
         Events.fire(new PlayerBanEvent(Groups.player.find(p -> id.equals(p.uuid())), id));
@@ -230,11 +236,10 @@ public class Administration{
     public boolean unbanPlayerIP(String ip){
         boolean found = bannedIPs.contains(ip, false);
 
-        for(PlayerInfo info : playerInfo.values()){
-            if(info.ips.contains(ip, false)){
-                info.banned = false;
-                found = true;
-            }
+        for(PlayerInfo info : playerInfo.byIP(ip)){
+            info.banned = false;
+            playerInfo.touch(info);
+            found = true;
         }
 
         bannedIPs.remove(ip, false);
@@ -256,6 +261,7 @@ public class Administration{
         if(!info.banned) return false;
 
         info.banned = false;
+        playerInfo.touch(info);
         bannedIPs.removeAll(info.ips, false);
         save();
         Events.fire(new PlayerUnbanEvent(Groups.player.find(p -> id.equals(p.uuid())), id));
@@ -267,11 +273,11 @@ public class Administration{
      */
     public Seq<PlayerInfo> getAdmins(){
         Seq<PlayerInfo> result = new Seq<>();
-        for(PlayerInfo info : playerInfo.values()){
+        playerInfo.each(info -> {
             if(info.admin){
                 result.add(info);
             }
-        }
+        });
         return result;
     }
 
@@ -280,11 +286,11 @@ public class Administration{
      */
     public Seq<PlayerInfo> getBanned(){
         Seq<PlayerInfo> result = new Seq<>();
-        for(PlayerInfo info : playerInfo.values()){
+        playerInfo.each(info -> {
             if(info.banned){
                 result.add(info);
             }
-        }
+        });
         return result;
     }
 
@@ -306,6 +312,7 @@ public class Administration{
 
         info.adminUsid = usid;
         info.admin = true;
+        playerInfo.touch(info);
         save();
 
         return wasAdmin;
@@ -321,6 +328,7 @@ public class Administration{
         if(!info.admin) return false;
 
         info.admin = false;
+        playerInfo.touch(info);
         save();
 
         return true;
@@ -369,13 +377,19 @@ public class Administration{
     public ObjectSet<PlayerInfo> findByName(String name){
         ObjectSet<PlayerInfo> result = new ObjectSet<>();
 
-        for(PlayerInfo info : playerInfo.values()){
+        //the indices only narrow down candidates, which are then matched exactly
+        Cons<PlayerInfo> check = info -> {
             if(info.lastName.equalsIgnoreCase(name) || info.names.contains(name, false)
             || Strings.stripColors(Strings.stripColors(info.lastName)).equals(name)
             || info.ips.contains(name, false) || info.id.equals(name)){
                 result.add(info);
             }
-        }
+        };
+
+        PlayerInfo byID = playerInfo.get(name);
+        if(byID != null) check.get(byID);
+        playerInfo.byIP(name).each(check);
+        playerInfo.byName(name).each(check);
 
         return result;
     }
@@ -384,25 +398,17 @@ public class Administration{
     public ObjectSet<PlayerInfo> searchNames(String name){
         ObjectSet<PlayerInfo> result = new ObjectSet<>();
 
-        for(PlayerInfo info : playerInfo.values()){
-            if(info.names.contains(n -> n.toLowerCase().contains(name.toLowerCase()) || Strings.stripColors(n).trim().toLowerCase().contains(name))){
+        playerInfo.searchNames(name, info -> {
+            if(!result.contains(info) && info.names.contains(n -> n.toLowerCase().contains(name.toLowerCase()) || Strings.stripColors(n).trim().toLowerCase().contains(name))){
                 result.add(info);
             }
-        }
+        });
 
         return result;
     }
 
     public Seq<PlayerInfo> findByIPs(String ip){
-        Seq<PlayerInfo> result = new Seq<>();
-
-        for(PlayerInfo info : playerInfo.values()){
-            if(info.ips.contains(ip, false)){
-                result.add(info);
-            }
-        }
-
-        return result;
+        return playerInfo.byIP(ip).copy();
     }
 
     public PlayerInfo getInfo(String id){
@@ -413,32 +419,39 @@ public class Administration{
         return playerInfo.get(id);
     }
 
+    /** Call after modifying player info directly, so that it is written on the next save. */
+    public void updateInfo(PlayerInfo info){
+        playerInfo.update(info);
+    }
+
     public PlayerInfo findByIP(String ip){
-        for(PlayerInfo info : playerInfo.values()){
-            if(info.ips.contains(ip, false)){
-                return info;
-            }
-        }
-        return null;
+        return playerInfo.byIP(ip).firstOpt();
     }
 
     public Seq<PlayerInfo> getWhitelisted(){
-        return playerInfo.values().toSeq().select(p -> isWhitelisted(p.id, p.adminUsid));
+        Seq<PlayerInfo> result = new Seq<>();
+        playerInfo.each(info -> {
+            if(isWhitelisted(info.id, info.adminUsid)){
+                result.add(info);
+            }
+        });
+        return result;
     }
 
     private PlayerInfo getCreateInfo(String id){
-        if(playerInfo.containsKey(id)){
-            return playerInfo.get(id);
+        PlayerInfo existing = playerInfo.get(id);
+        if(existing != null){
+            return existing;
         }else{
             PlayerInfo info = new PlayerInfo(id);
-            playerInfo.put(id, info);
+            playerInfo.put(info);
             save();
             return info;
         }
     }
 
     public void save(){
-        Core.settings.putJson("player-data", playerInfo);
+        playerInfo.save();
         Core.settings.putJson("ip-bans", String.class, bannedIPs);
         Core.settings.putJson("whitelist-ids", String.class, whitelist);
         Core.settings.putJson("banned-subnets", String.class, subnetBans);
@@ -447,7 +460,23 @@ public class Administration{
     @SuppressWarnings("unchecked")
     private void load(){
         //load default data
-        playerInfo = Core.settings.getJson("player-data", ObjectMap.class, ObjectMap::new);
+        playerInfo = new PlayerDatabase(Core.settings.getDataDirectory().child("players.db"));
+
+        //migrate player data that was stored in the settings
+        if(Core.settings.has("player-data")){
+            ObjectMap<String, PlayerInfo> legacy = Core.settings.getJson("player-data", ObjectMap.class, ObjectMap::new);
+            for(var entry : legacy){
+                if(playerInfo.get(entry.key) == null){
+                    entry.value.id = entry.key;
+                    playerInfo.put(entry.value);
+                }
+            }
+            //the old data is kept if it could not be written
+            if(playerInfo.compact()){
+                Core.settings.remove("player-data");
+                Log.info("Migrated @ players to the player database.", legacy.size);
+            }
+        }
         bannedIPs = Core.settings.getJson("ip-bans", Seq.class, Seq::new);
         whitelist = Core.settings.getJson("whitelist-ids", Seq.class, Seq::new);
         subnetBans = Core.settings.getJson("banned-subnets", Seq.class, Seq::new);
@@ -480,6 +509,16 @@ public class Administration{
         autosave("Whether the periodically save the map when playing.", false),
         autosaveAmount("The maximum amount of autosaves. Older ones get replaced.", 10),
         autosaveSpacing("Spacing between autosaves in seconds.", 60 * 5),
+        snapshotInterest("Whether entity snapshots only include entities near each player every sync. Entities out of view are sent less often.", false),
+        snapshotViewMargin("Extra distance around a player's view, in tiles, in which entities are always synced.", 12),
+        snapshotFarSpacing("How many syncs pass between updates of entities outside a player's view. Minimum 1.", 5),
+        snapshotDelta("Whether entities that have not changed since they were last sent are written as small markers in entity snapshots.", false),
+        snapshotKeyframeSpacing("How many syncs pass between full updates of unchanged entities when snapshotDelta is on. Minimum 1.", 15),
+        worldStreamCacheTime("Time in milliseconds for which compressed world data is reused for joining players.", 1000),
+        packetBatching("Whether reliable packets sent to a player in the same tick are combined into one compressed batch.", false),
+        logicCompile("Whether logic processors compile their programs into a faster form. Applies when a processor's code is next loaded.", true, Config::applyLogicCompile),
+        logicThreads("Amount of threads used to run logic processors. 0 to run processors on the main thread, in their own update.", 0, Config::applyLogicThreads),
+        physicsThreads("Maximum number of threads used for unit physics. 0 to choose based on the number of cores. Applies when the next map loads.", 0, Config::applyPhysicsThreads),
         debug("Enable debug logging", false, () -> Log.level = debug() ? LogLevel.debug : LogLevel.info);
 
         public static final Config[] all = values();
@@ -543,6 +582,20 @@ public class Administration{
         private static boolean debug(){
             return Config.debug.bool();
         }
+
+        private static void applyLogicCompile(){
+            LCompiler.enabled = Config.logicCompile.bool();
+        }
+
+        private static void applyLogicThreads(){
+            logicScheduler.setThreads(Math.max(Config.logicThreads.num(), 0));
+        }
+
+        private static void applyPhysicsThreads(){
+            if(asyncCore != null){
+                asyncCore.physicsThreads = Config.physicsThreads.num() <= 0 ? AsyncCore.defaultPhysicsThreads() : Config.physicsThreads.num();
+            }
+        }
     }
 
     public static class PlayerInfo{
@@ -28,6 +28,8 @@ public class ArcNetProvider implements NetProvider{
     final AsyncExecutor executor = new AsyncExecutor(Math.max(Runtime.getRuntime().availableProcessors(), 6));
 
     final Server server;
+    /** Used for encoding broadcast packets on the main thread. */
+    final PacketSerializer encoder = new PacketSerializer();
     final CopyOnWriteArrayList<ArcConnection> connections = new CopyOnWriteArrayList<>();
     Thread serverThread;
 
@@ -240,6 +242,11 @@ public class ArcNetProvider implements NetProvider{
         }
     }
 
+    @Override
+    public Object encode(Packet packet){
+        return encoder.encode(packet);
+    }
+
     @Override
     public Iterable<ArcConnection> getConnections(){
         return connections;
@@ -280,6 +287,8 @@ public class ArcNetProvider implements NetProvider{
 
     class ArcConnection extends NetConnection{
         public final Connection connection;
+        /** The last stream sent to this connection. */
+        @Nullable StreamSender sender;
 
         public ArcConnection(String address, Connection connection){
             super(address);
@@ -293,31 +302,18 @@ public class ArcNetProvider implements NetProvider{
 
         @Override
         public void sendStream(Streamable stream){
-            connection.addListener(new InputStreamSender(stream.stream, 512){
-                int id;
-
-                @Override
-                protected void start(){
-                    //send an object so the receiving side knows how to handle the following chunks
-                    StreamBegin begin = new StreamBegin();
-                    begin.total = stream.stream.available();
-                    begin.type = Net.getPacketId(stream);
-                    connection.sendTCP(begin);
-                    id = begin.id;
-                }
+            //stream chunks are sent directly, so batched packets must be sent first
+            flushBatch();
+            connection.addListener(sender = new StreamSender(stream.parts(), Net.getPacketId(stream)));
+        }
 
-                @Override
-                protected Object next(byte[] bytes){
-                    StreamChunk chunk = new StreamChunk();
-                    chunk.id = id;
-                    chunk.data = bytes;
-                    return chunk; //wrap the byte[] with an object so the receiving side knows how to handle it.
-                }
-            });
+        @Override
+        public float streamProgress(){
+            return sender == null || sender.done ? -1f : sender.progress();
         }
 
         @Override
-        public void send(Object object, boolean reliable){
+        protected void sendDirect(Object object, boolean reliable){
             try{
                 if(reliable){
                     connection.sendTCP(object);
@@ -336,17 +332,25 @@ public class ArcNetProvider implements NetProvider{
 
         @Override
         public void close(){
+            flushBatch();
             if(connection.isConnected()) connection.close(DcReason.closed);
         }
     }
 
     public static class PacketSerializer implements NetSerializer{
+        /** Packets with less data than this are never compressed. */
+        public static final int compressThreshold = 36;
+        /** Size of the packet ID, length and compression flag that precede the data of a packet. */
+        public static final int headerSize = 4;
+
         //for debugging total read/write speeds
         private static final boolean debug = false;
 
         ThreadLocal<ByteBuffer> decompressBuffer = Threads.local(() -> ByteBuffer.allocate(32768));
         ThreadLocal<Reads> reads = Threads.local(() -> new Reads(new ByteBufferInput(decompressBuffer.get())));
         ThreadLocal<Writes> writes = Threads.local(() -> new Writes(new ByteBufferOutput(decompressBuffer.get())));
+        //large enough for the id, length, compression flag and incompressible packet data
+        ThreadLocal<ByteBuffer> encodeBuffer = Threads.local(() -> ByteBuffer.allocate(compressor.maxCompressedLength(32768) + 8));
 
         //for debugging network write counts
         static WindowedMean upload = new WindowedMean(5), download = new WindowedMean(5);
@@ -400,6 +404,11 @@ public class ArcNetProvider implements NetProvider{
 
         @Override
         public void write(ByteBuffer byteBuffer, Object o){
+            write(byteBuffer, o, true);
+        }
+
+        /** @param compress whether packet data may be compressed. Packets in a batch are written without it, as the whole batch is compressed. */
+        public void write(ByteBuffer byteBuffer, Object o, boolean compress){
             if(debug){
                 lastPos = byteBuffer.position();
             }
@@ -407,6 +416,17 @@ public class ArcNetProvider implements NetProvider{
             //write raw buffer
             if(o instanceof ByteBuffer raw){
                 byteBuffer.put(raw);
+            }else if(o instanceof EncodedPacket encoded){
+                byteBuffer.put(encoded.bytes);
+            }else if(o instanceof StreamChunk chunk){
+                //same format as other uncompressed packets, but the data is copied straight from the chunk
+                int length = chunk.length();
+                byteBuffer.put(Net.getPacketId(chunk));
+                byteBuffer.putShort((short)(length + 6));
+                byteBuffer.put((byte)0);
+                byteBuffer.putInt(chunk.id);
+                byteBuffer.putShort((short)length);
+                byteBuffer.put(chunk.data, chunk.offset, length);
             }else if(o instanceof FrameworkMessage msg){
                 byteBuffer.put((byte)-2); //code for framework message
                 writeFramework(byteBuffer, msg);
@@ -426,7 +446,7 @@ public class ArcNetProvider implements NetProvider{
                 byteBuffer.putShort(length);
 
                 //don't bother with small packets
-                if(length < 36 || pack instanceof StreamChunk){
+                if(!compress || length < compressThreshold || pack instanceof StreamChunk){
                     //write direct contents...
                     byteBuffer.put((byte)0); //0 = no compression
                     byteBuffer.put(temp.array(), 0, length);
@@ -450,6 +470,23 @@ public class ArcNetProvider implements NetProvider{
             }
         }
 
+        /** Encodes a packet in the same format as {@link #write(ByteBuffer, Object)}, so it can be sent to multiple connections without being written and compressed again. */
+        public EncodedPacket encode(Packet packet){
+            return encode(packet, true);
+        }
+
+        /** @param compress whether packet data may be compressed, see {@link #write(ByteBuffer, Object, boolean)}. */
+        public EncodedPacket encode(Packet packet, boolean compress){
+            var buffer = encodeBuffer.get();
+            buffer.position(0);
+            buffer.limit(buffer.capacity());
+            write(buffer, packet, compress);
+
+            byte[] bytes = new byte[buffer.position()];
+            System.arraycopy(buffer.array(), 0, bytes, 0, bytes.length);
+            return new EncodedPacket(bytes);
+        }
+
         public void writeFramework(ByteBuffer buffer, FrameworkMessage message){
             if(message instanceof Ping p){
                 buffer.put((byte)0);
@@ -494,4 +531,113 @@ public class ArcNetProvider implements NetProvider{
         }
     }
 
+    /**
+     * Sends a stream to a connection whenever its write buffer is mostly empty. Chunks are slices of the stream data, which is not copied.
+     * Chunks start small, so slow connections still report progress, grow while the connection keeps up and shrink when it falls behind.
+     */
+    public static class StreamSender implements NetListener{
+        /** The maximum keeps framed chunks within the object buffer of clients. */
+        public static final int minChunkSize = 1024, maxChunkSize = 8000;
+        /** Fraction of the write buffer that may be filled while streaming. The default threshold of connections is restored afterwards. */
+        public static final float window = 0.5f, defaultIdleThreshold = 0.1f;
+
+        final byte[][] parts;
+        final byte type;
+        final int total;
+
+        int id, part, offset, sent, chunks, chunkSize = minChunkSize;
+        boolean started, done;
+        long startTime;
+
+        public StreamSender(byte[][] parts, byte type){
+            this.parts = parts;
+            this.type = type;
+
+            int total = 0;
+            for(byte[] data : parts){
+                total += data.length;
+            }
+            this.total = total;
+        }
+
+        /** @return the fraction of the stream that was sent. */
+        public float progress(){
+            return total == 0 ? 1f : (float)sent / total;
+        }
+
+        @Override
+        public void idle(Connection connection){
+            if(!started){
+                started = true;
+                startTime = Time.millis();
+                connection.setIdleThreshold(window);
+
+                //send an object so the receiving side knows how to handle the following chunks
+                StreamBegin begin = new StreamBegin();
+                begin.total = total;
+                begin.type = type;
+                connection.sendTCP(begin);
+                id = begin.id;
+            }
+
+            int written = 0;
+            while(connection.isIdle()){
+                if(part >= parts.length){
+                    finish(connection);
+                    return;
+                }
+
+                byte[] data = parts[part];
+                if(offset >= data.length){
+                    part++;
+                    offset = 0;
+                    continue;
+                }
+
+                StreamChunk chunk = new StreamChunk();
+                chunk.id = id;
+                chunk.data = data;
+                chunk.offset = offset;
+                chunk.length = Math.min(chunkSize, data.length - offset);
+                connection.sendTCP(chunk);
+
+                offset += chunk.length;
+                sent += chunk.length;
+                chunks++;
+                written++;
+            }
+
+            //the buffer was drained faster than it was filled
+            if(written >= 3 && chunkSize < maxChunkSize){
+                chunkSize = Math.min(chunkSize * 2, maxChunkSize);
+            }else if(written <= 1 && chunkSize > minChunkSize){
+                //a single chunk filled the window, so the connection is not keeping up
+                chunkSize = Math.max(chunkSize / 2, minChunkSize);
+            }
+        }
+
+        @Override
+        public void disconnected(Connection connection, DcReason reason){
+            done = true;
+            connection.removeListener(this);
+        }
+
+        void finish(Connection connection){
+            done = true;
+            connection.removeListener(this);
+            connection.setIdleThreshold(defaultIdleThreshold);
+
+            long time = Time.timeSinceMillis(startTime);
+            Log.debug("Streamed @ KB in @ chunks in @ms (@ KB/s).", total / 1024, chunks, time, total / 1024 * 1000 / Math.max(time, 1));
+        }
+    }
+
+    /** A packet that has already been written and compressed. Its contents are sent as-is, and must not be modified. */
+    public static class EncodedPacket{
+        public final byte[] bytes;
+
+        public EncodedPacket(byte[] bytes){
+            this.bytes = bytes;
+        }
+    }
 }
@@ -7,6 +7,8 @@ import arc.struct.*;
 import arc.util.*;
 import arc.util.async.*;
 import mindustry.gen.*;
+import mindustry.net.Administration.*;
+import mindustry.net.ArcNetProvider.*;
 import mindustry.net.Packets.*;
 import mindustry.net.Streamable.*;
 import net.jpountz.lz4.*;
@@ -35,6 +37,16 @@ public class Net{
     private final ObjectMap<Class<?>, Cons> clientListeners = new ObjectMap<>();
     private final ObjectMap<Class<?>, Cons2<NetConnection, Object>> serverListeners = new ObjectMap<>();
     private final IntMap<StreamBuilder> streams = new IntMap<>();
+
+    /** Packets that were encoded once and sent to multiple connections, and how many encodings that saved. */
+    public long broadcastPackets, broadcastEncodesSaved;
+    /** Estimated time saved by encoding broadcast packets once, in nanoseconds. */
+    public long broadcastNanosSaved;
+    /** Packet batches that were sent, and the amount of packets in them. */
+    public long batchesSent, batchedPackets;
+
+    /** Encodes packets for batches, and decodes received batches. Only used on the main thread. */
+    private final PacketSerializer batchSerializer = new PacketSerializer();
     private final ExecutorService pingExecutor = Threads.cachedExecutor();
 
     private final NetProvider provider;
@@ -47,6 +59,9 @@ public class Net{
 
         //register generated packet classes
         Call.registerPackets();
+
+        //registered last, so the IDs of other packets do not change
+        registerPacket(PacketBatch::new);
     }
 
     /** Registers a new packet type for serialization. */
@@ -225,6 +240,11 @@ public class Net{
     /** Send an object to all connected clients, or to the server if this is a client.*/
     public void send(Object object, boolean reliable){
         if(server){
+            if(object instanceof Packet packet){
+                broadcastExcept(null, packet, reliable);
+                return;
+            }
+
             for(NetConnection con : provider.getConnections()){
                 con.send(object, reliable);
             }
@@ -235,6 +255,11 @@ public class Net{
 
     /** Send an object to everyone EXCEPT a certain client. Server-side only.*/
     public void sendExcept(NetConnection except, Object object, boolean reliable){
+        if(object instanceof Packet packet){
+            broadcastExcept(except, packet, reliable);
+            return;
+        }
+
         for(NetConnection con : getConnections()){
             if(con != except){
                 con.send(object, reliable);
@@ -242,6 +267,88 @@ public class Net{
         }
     }
 
+    /** Send a packet to all connected clients, or to the server if this is a client. The packet is only encoded once. */
+    public void broadcast(Packet packet, boolean reliable){
+        if(server){
+            broadcastExcept(null, packet, reliable);
+        }else{
+            provider.sendClient(packet, reliable);
+        }
+    }
+
+    /**
+     * Send a packet to everyone except a certain client. Server-side only.
+     * When there are multiple recipients, the packet is encoded (and compressed) once, and the result is sent to all of them.
+     */
+    public void broadcastExcept(@Nullable NetConnection except, Packet packet, boolean reliable){
+        int recipients = 0;
+        for(NetConnection con : provider.getConnections()){
+            if(con != except) recipients++;
+        }
+
+        if(recipients == 0) return;
+
+        if(batching() && batchable(packet, reliable)){
+            byte[] encoded = encodeBatched(packet);
+            if(recipients > 1){
+                broadcastPackets++;
+                broadcastEncodesSaved += recipients - 1;
+            }
+
+            for(NetConnection con : provider.getConnections()){
+                if(con != except){
+                    con.queue(encoded);
+                }
+            }
+            return;
+        }
+
+        Object data = packet;
+        if(recipients > 1){
+            long start = Time.nanos();
+            data = provider.encode(packet);
+
+            if(data != packet){
+                broadcastPackets++;
+                broadcastEncodesSaved += recipients - 1;
+                broadcastNanosSaved += Time.timeSinceNanos(start) * (recipients - 1);
+            }
+        }
+
+        for(NetConnection con : provider.getConnections()){
+            if(con != except){
+                con.send(data, reliable);
+            }
+        }
+    }
+
+    /** @return whether reliable packets sent from the server are batched until the end of the tick. */
+    public boolean batching(){
+        return server && Config.packetBatching.bool();
+    }
+
+    /** @return whether this object can be added to a packet batch. Priority packets and streams are always sent immediately. */
+    public boolean batchable(Object object, boolean reliable){
+        return reliable && object instanceof Packet p && p.getPriority() != Packet.priorityHigh &&
+            !(p instanceof StreamBegin) && !(p instanceof StreamChunk) && !(p instanceof PacketBatch);
+    }
+
+    /**
+     * Encodes a packet in the format used inside of batches. The packet is not compressed, as the whole batch is compressed when it is sent.
+     * Packets that are too large for a batch are sent on their own, so they are compressed.
+     */
+    public byte[] encodeBatched(Packet packet){
+        byte[] bytes = batchSerializer.encode(packet, false).bytes;
+        return bytes.length > PacketBatch.maxSize ? batchSerializer.encode(packet).bytes : bytes;
+    }
+
+    /** Sends the batched packets of every connection. Called at the end of each server tick. */
+    public void flushBatches(){
+        for(NetConnection con : provider.getConnections()){
+            con.flushBatch();
+        }
+    }
+
     public @Nullable StreamBuilder getCurrentStream(){
         return currentStream;
     }
@@ -270,7 +377,13 @@ public class Net{
     public void handleClientReceived(Packet object){
         object.handled();
 
-        if(object instanceof StreamBegin b){
+        if(object instanceof PacketBatch batch){
+            //packets in a batch are handled as if they were received separately, in order
+            ByteBuffer buffer = ByteBuffer.wrap(batch.data);
+            while(buffer.hasRemaining()){
+                handleClientReceived((Packet)batchSerializer.read(buffer));
+            }
+        }else if(object instanceof StreamBegin b){
             streams.put(b.id, currentStream = new StreamBuilder(b));
 
         }else if(object instanceof StreamChunk c){
@@ -392,6 +505,14 @@ public class Net{
         /** Return all connected users. */
         Iterable<? extends NetConnection> getConnections();
 
+        /**
+         * Encodes a packet that is sent to multiple connections. The result is passed to {@link NetConnection#send(Object, boolean)}
+         * instead of the packet, so it must be understood by all connections of this provider.
+         */
+        default Object encode(Packet packet){
+            return packet;
+        }
+
         /** Close the server connection. */
         void closeServer();
 
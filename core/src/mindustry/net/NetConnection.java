@@ -4,9 +4,11 @@ import arc.struct.*;
 import arc.util.*;
 import mindustry.entities.units.*;
 import mindustry.gen.*;
+import mindustry.net.ArcNetProvider.*;
 import mindustry.net.Packets.*;
 
 import java.io.*;
+import java.nio.*;
 
 import static mindustry.Vars.*;
 
@@ -26,12 +28,18 @@ public abstract class NetConnection{
     public int snapshotsSent;
     /** Timestamp of last received snapshot. */
     public long lastReceivedClientTime;
+    /** Version of the last sync state sent to this connection, by entity ID. Used for delta snapshots. */
+    public IntIntMap syncBaselines = new IntIntMap();
     /** Build requests that have been recently rejected. This is cleared every snapshot. */
     public Seq<BuildPlan> rejectedRequests = new Seq<>();
 
     public boolean hasConnected, hasBegunConnecting, hasDisconnected;
     public float viewWidth, viewHeight, viewX, viewY;
 
+    /** Encoded reliable packets that are sent together at the end of the tick. Only used when packet batching is enabled. */
+    private @Nullable ByteBuffer batch;
+    private int batched;
+
     public NetConnection(String address){
         this.address = address;
     }
@@ -78,6 +86,11 @@ public abstract class NetConnection{
         kicked = true;
     }
 
+    /** @return the fraction of the stream that is currently being sent to this connection, or -1 if none is. */
+    public float streamProgress(){
+        return -1f;
+    }
+
     public boolean isConnected(){
         return true;
     }
@@ -85,15 +98,16 @@ public abstract class NetConnection{
     public void sendStream(Streamable stream){
         try{
             int cid;
+            ByteArrayInputStream input = stream.stream();
             StreamBegin begin = new StreamBegin();
-            begin.total = stream.stream.available();
+            begin.total = input.available();
             begin.type = Net.getPacketId(stream);
             send(begin, true);
             cid = begin.id;
 
-            while(stream.stream.available() > 0){
-                byte[] bytes = new byte[Math.min(maxTcpSize, stream.stream.available())];
-                stream.stream.read(bytes);
+            while(input.available() > 0){
+                byte[] bytes = new byte[Math.min(maxTcpSize, input.available())];
+                input.read(bytes);
 
                 StreamChunk chunk = new StreamChunk();
                 chunk.id = cid;
@@ -105,7 +119,64 @@ public abstract class NetConnection{
         }
     }
 
-    public abstract void send(Object object, boolean reliable);
+    /**
+     * Sends an object to this connection. When packet batching is enabled, reliable packets are added to a batch that is sent at the end of the tick;
+     * other reliable objects are only sent after the current batch, so their order does not change.
+     */
+    public void send(Object object, boolean reliable){
+        if(net.batching() && net.batchable(object, reliable)){
+            queue(net.encodeBatched((Packet)object));
+            return;
+        }
+
+        if(reliable) flushBatch();
+        sendDirect(object, reliable);
+    }
+
+    /** Adds a packet that was encoded with {@link Net#encodeBatched(Packet)} to the batch of this tick. */
+    public void queue(byte[] encoded){
+        if(encoded.length > PacketBatch.maxSize){
+            flushBatch();
+            sendDirect(new EncodedPacket(encoded), true);
+            return;
+        }
+
+        if(batch == null){
+            batch = ByteBuffer.allocate(PacketBatch.maxSize);
+        }else if(batch.remaining() < encoded.length){
+            flushBatch();
+        }
+
+        batch.put(encoded);
+        batched++;
+    }
+
+    /** Sends all batched packets. */
+    public void flushBatch(){
+        if(batch == null || batched == 0) return;
+
+        byte[] data = new byte[batch.position()];
+        System.arraycopy(batch.array(), 0, data, 0, data.length);
+        int count = batched;
+
+        //cleared first, as sending may fail and close this connection
+        batch.clear();
+        batched = 0;
+        net.batchesSent++;
+        net.batchedPackets += count;
+
+        if(count == 1 && data.length - PacketSerializer.headerSize < PacketSerializer.compressThreshold){
+            //a single packet that would not be compressed does not need the batch header
+            sendDirect(new EncodedPacket(data), true);
+        }else{
+            PacketBatch packet = new PacketBatch();
+            packet.data = data;
+            sendDirect(packet, true);
+        }
+    }
+
+    /** Sends an object immediately. */
+    protected abstract void sendDirect(Object object, boolean reliable);
 
     public abstract void close();
 }
@@ -16,46 +16,94 @@ import mindustry.net.Administration.*;
 import java.io.*;
 import java.nio.*;
 import java.util.*;
+import java.util.zip.*;
 
 import static mindustry.Vars.*;
 
 public class NetworkIO{
+    /** Header of the zlib stream of the world: a 32K window and the default compression level. */
+    private static final byte[] zlibHeader = {0x78, (byte)0x9c};
 
+    /** Writes the uncompressed world stream for a player. */
     public static void writeWorld(Player player, OutputStream os){
-
         try(DataOutputStream stream = new DataOutputStream(os)){
-            //write all researched content to rules if hosting
-            if(state.isCampaign()){
-                state.rules.researched.clear();
-                for(ContentType type : ContentType.all){
-                    for(Content c : content.getBy(type)){
-                        if(c instanceof UnlockableContent u && u.unlocked() && TechTree.get(u) != null){
-                            state.rules.researched.add(u.name);
-                        }
+            writeWorldState(stream);
+            writeWorldPlayer(player, stream);
+            writeWorldData(stream);
+        }catch(IOException e){
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @param state the compressed output of {@link #writeWorldState}, which is not the last section.
+     * @param data the compressed output of {@link #writeWorldData}, which is the last section.
+     * @return the world stream for a player as parts to send. The parts form the same zlib stream as the deflated output of
+     * {@link #writeWorld(Player, OutputStream)}; only the player's own data and the checksum are compressed for each player.
+     */
+    public static byte[][] writeWorld(Player player, DeflatedSection state, DeflatedSection data){
+        ByteArrayOutputStream out = new ByteArrayOutputStream(128);
+        try{
+            writeWorldPlayer(player, new DataOutputStream(out));
+        }catch(IOException e){
+            throw new RuntimeException(e);
+        }
+        DeflatedSection own = new DeflatedSection(out.toByteArray(), 0, out.size(), false);
+
+        //zlib streams end with the Adler-32 checksum of all uncompressed data, big-endian
+        int adler = DeflatedSection.combine(DeflatedSection.combine(state.adler, own.adler, own.length), data.adler, data.length);
+        byte[] trailer = {(byte)(adler >>> 24), (byte)(adler >>> 16), (byte)(adler >>> 8), (byte)adler};
+
+        return new byte[][]{zlibHeader, state.bytes, own.bytes, data.bytes, trailer};
+    }
+
+    /** Writes the rules and state of the world stream. These change every tick, so they must be captured together with the world data. */
+    public static void writeWorldState(OutputStream os) throws IOException{
+        DataOutputStream stream = new DataOutputStream(os);
+
+        //write all researched content to rules if hosting
+        if(state.isCampaign()){
+            state.rules.researched.clear();
+            for(ContentType type : ContentType.all){
+                for(Content c : content.getBy(type)){
+                    if(c instanceof UnlockableContent u && u.unlocked() && TechTree.get(u) != null){
+                        state.rules.researched.add(u.name);
                     }
                 }
             }
+        }
 
-            stream.writeUTF(JsonIO.write(state.rules));
-            SaveIO.getSaveWriter().writeStringMap(stream, state.map.tags);
+        stream.writeUTF(JsonIO.write(state.rules));
+        SaveIO.getSaveWriter().writeStringMap(stream, state.map.tags);
 
-            stream.writeInt(state.wave);
-            stream.writeFloat(state.wavetime);
-            stream.writeDouble(state.tick);
-            stream.writeLong(GlobalConstants.rand.seed0);
-            stream.writeLong(GlobalConstants.rand.seed1);
+        stream.writeInt(state.wave);
+        stream.writeFloat(state.wavetime);
+        stream.writeDouble(state.tick);
+        stream.writeLong(GlobalConstants.rand.seed0);
+        stream.writeLong(GlobalConstants.rand.seed1);
+        stream.flush();
+    }
 
-            stream.writeInt(player.id);
-            player.write(Writes.get(stream));
+    /** Writes the part of the world stream that is specific to a player. */
+    public static void writeWorldPlayer(Player player, OutputStream os) throws IOException{
+        DataOutputStream stream = new DataOutputStream(os);
 
-            SaveIO.getSaveWriter().writeContentHeader(stream);
-            SaveIO.getSaveWriter().writeMap(stream);
-            SaveIO.getSaveWriter().writeTeamBlocks(stream);
-        }catch(IOException e){
-            throw new RuntimeException(e);
-        }
+        stream.writeInt(player.id);
+        player.write(Writes.get(stream));
+        stream.flush();
     }
 
+    /** Writes the content header, map and team blocks of the world stream. This is the same for every player. */
+    public static void writeWorldData(OutputStream os) throws IOException{
+        DataOutputStream stream = new DataOutputStream(os);
+
+        SaveIO.getSaveWriter().writeContentHeader(stream);
+        SaveIO.getSaveWriter().writeMap(stream);
+        SaveIO.getSaveWriter().writeTeamBlocks(stream);
+        stream.flush();
+    }
+
+    /** Loads an uncompressed world stream written by {@link #writeWorld(Player, OutputStream)}. */
     public static void loadWorld(InputStream is){
 
         try(DataInputStream stream = new DataInputStream(is)){
@@ -86,6 +134,64 @@ public class NetworkIO{
         }
     }
 
+    /**
+     * A section of a zlib stream, compressed as raw deflate blocks. Sections that are compressed separately can be joined into one
+     * stream, which allows the parts of the world stream that are shared by players to be compressed once.
+     */
+    public static class DeflatedSection{
+        private static final int adlerBase = 65521;
+
+        public final byte[] bytes;
+        /** Adler-32 checksum and length of the uncompressed data. */
+        public final int adler, length;
+
+        /** @param last whether this section ends the stream. Other sections end on a byte boundary, so another section can follow them. */
+        public DeflatedSection(byte[] data, int offset, int length, boolean last){
+            Adler32 checksum = new Adler32();
+            checksum.update(data, offset, length);
+            this.adler = (int)checksum.getValue();
+            this.length = length;
+
+            Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(length / 4, 64));
+            byte[] buffer = new byte[8192];
+
+            try{
+                deflater.setInput(data, offset, length);
+                if(last){
+                    deflater.finish();
+                    while(!deflater.finished()){
+                        out.write(buffer, 0, deflater.deflate(buffer));
+                    }
+                }else{
+                    int written;
+                    do{
+                        written = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                        out.write(buffer, 0, written);
+                    }while(written == buffer.length);
+                }
+            }finally{
+                deflater.end();
+            }
+
+            bytes = out.toByteArray();
+        }
+
+        /** @return the Adler-32 checksum of two pieces of data, from the checksums of each piece and the length of the second one. */
+        static int combine(int adler1, int adler2, int length2){
+            long rem = Integer.toUnsignedLong(length2) % adlerBase;
+            long sum1 = adler1 & 0xffff;
+            long sum2 = (rem * sum1) % adlerBase;
+            sum1 += (adler2 & 0xffff) + adlerBase - 1;
+            sum2 += ((adler1 >>> 16) & 0xffff) + ((adler2 >>> 16) & 0xffff) + adlerBase - rem;
+            if(sum1 >= adlerBase) sum1 -= adlerBase;
+            if(sum1 >= adlerBase) sum1 -= adlerBase;
+            if(sum2 >= adlerBase * 2L) sum2 -= adlerBase * 2L;
+            if(sum2 >= adlerBase) sum2 -= adlerBase;
+            return (int)(sum1 | (sum2 << 16));
+        }
+    }
+
     public static ByteBuffer writeServerData(){
         String name = (headless ? Config.name.string() : player.name);
         String description = headless && !Config.desc.string().equals("off") ? Config.desc.string() : "";
@@ -93,12 +93,24 @@ public class Packets{
     public static class StreamChunk extends Packet{
         public int id;
         public byte[] data;
+        /** Slice of {@link #data} that is sent, so chunks can refer to shared data without copying it. A length of -1 sends the whole array. */
+        public transient int offset, length = -1;
+
+        public int length(){
+            return length == -1 ? data.length : length;
+        }
 
         @Override
         public void write(Writes buffer){
             buffer.i(id);
-            buffer.s((short)data.length);
-            buffer.b(data);
+            buffer.s((short)length());
+            if(offset == 0 && length() == data.length){
+                buffer.b(data);
+            }else{
+                byte[] slice = new byte[length()];
+                System.arraycopy(data, offset, slice, 0, slice.length);
+                buffer.b(slice);
+            }
         }
 
         @Override
@@ -108,6 +120,27 @@ public class Packets{
         }
     }
 
+    /**
+     * Reliable packets that were sent to a connection in the same tick, in the format written by {@link ArcNetProvider.PacketSerializer}.
+     * The batch is compressed as a whole. See {@link NetConnection#send(Object, boolean)}.
+     */
+    public static class PacketBatch extends Packet{
+        /** Maximum size of the packets in a batch, which keeps the batch well below client buffer sizes even if it is incompressible. */
+        public static final int maxSize = 4096;
+
+        public byte[] data;
+
+        @Override
+        public void write(Writes buffer){
+            buffer.b(data);
+        }
+
+        @Override
+        public void read(Reads buffer, int length){
+            data = buffer.b(length);
+        }
+    }
+
     public static class ConnectPacket extends Packet{
         public int version;
         public String versionType;
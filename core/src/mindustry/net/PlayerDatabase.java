@@ -0,0 +1,398 @@
+package mindustry.net;
+
+import arc.files.*;
+import arc.func.*;
+import arc.struct.*;
+import arc.util.*;
+import arc.util.io.*;
+import mindustry.io.*;
+import mindustry.net.Administration.*;
+
+import java.io.*;
+import java.util.zip.*;
+
+/**
+ * Persistent storage of player info, as an append-only log of records. Only records that have changed since they were last written
+ * are appended when saving, and the log is compacted once most of it consists of outdated records.
+ * Records are kept in memory, with indices on UUID, IP and normalized name. Each record is checksummed, so a log with a torn write
+ * at its end (e.g. after a crash) loses only the last record.
+ * <p>
+ * {@link PlayerInfo} fields are modified directly, so records that are modified must be passed to {@link #touch(PlayerInfo)},
+ * which marks them to be checked for changes on the next {@link #save()}. Reads do not mark anything.
+ * Indices are updated on save, or immediately with {@link #update(PlayerInfo)}.
+ */
+public class PlayerDatabase{
+    /** Log format header. */
+    public static final byte[] header = {'M', 'P', 'D', 'B'};
+    public static final int version = 1;
+    /** Minimum amount of outdated records before the log is compacted. */
+    public static final int compactThreshold = 1000;
+
+    private final Fi file;
+    private final ObjectMap<String, Record> records = new ObjectMap<>();
+    private final ObjectMap<String, Seq<PlayerInfo>> ips = new ObjectMap<>(), names = new ObjectMap<>();
+    private final ObjectSet<Record> touched = new ObjectSet<>();
+
+    private final ReusableByteOutStream buffer = new ReusableByteOutStream(256);
+    private final DataOutputStream bufferData = new DataOutputStream(buffer);
+    private final CRC32 crc = new CRC32();
+
+    private @Nullable DataOutputStream log;
+    /** Amount of records in the log file, including outdated ones. */
+    private int logged;
+
+    public PlayerDatabase(Fi file){
+        this.file = file;
+        load();
+    }
+
+    public @Nullable PlayerInfo get(String id){
+        Record record = records.get(id);
+        return record == null ? null : record.info;
+    }
+
+    /** Adds or replaces a record. It is written on the next save. */
+    public void put(PlayerInfo info){
+        Record record = records.get(info.id);
+        if(record == null){
+            records.put(info.id, record = new Record());
+        }else if(record.info != info){
+            unindex(record);
+        }
+        record.info = info;
+        index(record);
+        touched.add(record);
+    }
+
+    /** Marks a record as possibly modified, so it is checked on the next save. */
+    public void touch(PlayerInfo info){
+        Record record = records.get(info.id);
+        if(record != null && record.info == info) touched.add(record);
+    }
+
+    /** Updates the indices of a record after its names or IPs have changed, and marks it as modified. */
+    public void update(PlayerInfo info){
+        Record record = records.get(info.id);
+        if(record == null || record.info != info){
+            put(info);
+        }else{
+            unindex(record);
+            index(record);
+            touched.add(record);
+        }
+    }
+
+    /** @return all players that have used this IP. The result must not be modified. */
+    public Seq<PlayerInfo> byIP(String ip){
+        Seq<PlayerInfo> result = ips.get(ip);
+        return result == null ? Seq.with() : result;
+    }
+
+    /** @return players that may have used this name, ignoring case and colors. The result must not be modified. */
+    public Seq<PlayerInfo> byName(String name){
+        Seq<PlayerInfo> result = names.get(name.toLowerCase());
+        return result == null ? Seq.with() : result;
+    }
+
+    /**
+     * Calls the consumer with players that may have used a name which contains this string, ignoring case and colors. A player may be passed multiple times.
+     * Substring matches can't use the name index, so this scans every name key (up to four per name); it is meant for admin commands, not per-packet use.
+     */
+    public void searchNames(String part, Cons<PlayerInfo> cons){
+        String lower = part.toLowerCase();
+        for(var entry : names){
+            if(entry.key.contains(lower) || entry.key.contains(part)){
+                entry.value.each(cons);
+            }
+        }
+    }
+
+    /** Iterates over all players. Players that are modified must be passed to {@link #touch(PlayerInfo)} or {@link #update(PlayerInfo)}. */
+    public void each(Cons<PlayerInfo> cons){
+        for(Record record : records.values()){
+            cons.get(record.info);
+        }
+    }
+
+    public int size(){
+        return records.size;
+    }
+
+    /** Appends all modified records to the log. */
+    public void save(){
+        if(touched.isEmpty()) return;
+
+        try{
+            if(log == null) open();
+
+            for(Record record : touched){
+                //names and IPs may have been added directly
+                unindex(record);
+                index(record);
+
+                int checksum = serialize(record.info);
+                if(record.written && record.checksum == checksum) continue;
+
+                writeRecord(log, checksum);
+                record.checksum = checksum;
+                record.written = true;
+                logged++;
+            }
+            touched.clear();
+
+            log.flush();
+        }catch(IOException e){
+            Log.err("Failed to write player data", e);
+            closeLog();
+        }
+
+        if(logged - records.size >= Math.max(compactThreshold, records.size)){
+            compact();
+        }
+    }
+
+    /** Rewrites the log with only the current version of each record. @return whether the log was written */
+    public boolean compact(){
+        closeLog();
+        Fi temp = file.sibling(file.name() + ".tmp");
+
+        try(DataOutputStream out = new DataOutputStream(temp.write(false, 65536))){
+            out.write(header);
+            out.writeInt(version);
+            for(Record record : records.values()){
+                record.checksum = serialize(record.info);
+                record.written = true;
+                writeRecord(out, record.checksum);
+            }
+        }catch(IOException e){
+            Log.err("Failed to compact player data", e);
+            temp.delete();
+            return false;
+        }
+
+        temp.moveTo(file);
+        logged = records.size;
+        return true;
+    }
+
+    /** Closes the log file. It is reopened on the next save. */
+    public void close(){
+        save();
+        closeLog();
+    }
+
+    private void open() throws IOException{
+        if(!file.exists() || file.length() == 0){
+            if(!compact()) throw new IOException("Player data could not be created.");
+        }
+        log = new DataOutputStream(file.write(true, 8192));
+    }
+
+    private void closeLog(){
+        Streams.close(log);
+        log = null;
+    }
+
+    private void load(){
+        if(!file.exists()) return;
+
+        //whether the log must be rewritten because its end is damaged
+        boolean damaged = false;
+
+        try(DataInputStream in = new DataInputStream(file.read(65536))){
+            SaveIO.readHeader(in, header);
+            if(in.readInt() != version){
+                throw new IOException("Unknown player data version.");
+            }
+
+            ReusableByteInStream bin = new ReusableByteInStream();
+            DataInputStream data = new DataInputStream(bin);
+
+            while(true){
+                int length, checksum;
+                byte[] bytes;
+                try{
+                    length = in.readInt();
+                }catch(EOFException end){
+                    break;
+                }
+
+                try{
+                    checksum = in.readInt();
+                    if(length < 0) throw new IOException("Invalid record length: " + length);
+                    bytes = new byte[length];
+                    in.readFully(bytes);
+                }catch(IOException torn){
+                    damaged = true;
+                    break;
+                }
+
+                crc.reset();
+                crc.update(bytes);
+                if((int)crc.getValue() != checksum){
+                    damaged = true;
+                    break;
+                }
+
+                bin.setBytes(bytes);
+                PlayerInfo info = read(data);
+
+                Record record = records.get(info.id);
+                if(record == null){
+                    records.put(info.id, record = new Record());
+                }else{
+                    unindex(record);
+                }
+                record.info = info;
+                record.checksum = checksum;
+                record.written = true;
+                index(record);
+                logged++;
+            }
+        }catch(Throwable e){
+            Log.err("Failed to read player data", e);
+            damaged = true;
+        }
+
+        if(damaged){
+            Log.warn("Player data is damaged; @ players were recovered.", records.size);
+            //keep the original file, as this may not be recoverable
+            file.copyTo(file.sibling(file.name() + ".damaged"));
+            compact();
+        }else if(logged - records.size >= Math.max(compactThreshold, records.size)){
+            compact();
+        }
+    }
+
+    /** Serializes a record into the buffer. @return its checksum */
+    private int serialize(PlayerInfo info) throws IOException{
+        buffer.reset();
+        write(bufferData, info);
+        crc.reset();
+        crc.update(buffer.getBytes(), 0, buffer.size());
+        return (int)crc.getValue();
+    }
+
+    /** Writes the record in the buffer. */
+    private void writeRecord(DataOutputStream out, int checksum) throws IOException{
+        out.writeInt(buffer.size());
+        out.writeInt(checksum);
+        out.write(buffer.getBytes(), 0, buffer.size());
+    }
+
+    private void index(Record record){
+        PlayerInfo info = record.info;
+        for(String ip : info.ips){
+            add(ips, ip, info);
+        }
+
+        ObjectSet<String> keys = new ObjectSet<>();
+        keys(info.lastName, keys);
+        for(String name : info.names){
+            keys(name, keys);
+        }
+        for(String key : keys){
+            add(names, key, info);
+        }
+        record.nameKeys = keys.toSeq().toArray(String.class);
+        record.ipKeys = info.ips.toArray(String.class);
+    }
+
+    private void unindex(Record record){
+        if(record.ipKeys == null) return;
+        for(String ip : record.ipKeys){
+            remove(ips, ip, record.info);
+        }
+        for(String key : record.nameKeys){
+            remove(names, key, record.info);
+        }
+        record.ipKeys = record.nameKeys = null;
+    }
+
+    /** Adds the lookup keys of a name: the name itself and the name without colors, in lower case. */
+    static void keys(@Nullable String name, ObjectSet<String> out){
+        if(name == null) return;
+        String stripped = Strings.stripColors(name);
+        out.add(name.toLowerCase());
+        out.add(stripped.toLowerCase());
+        out.add(stripped.trim().toLowerCase());
+        out.add(Strings.stripColors(stripped).toLowerCase());
+    }
+
+    static void add(ObjectMap<String, Seq<PlayerInfo>> index, String key, PlayerInfo info){
+        Seq<PlayerInfo> seq = index.get(key);
+        if(seq == null){
+            index.put(key, seq = new Seq<>(1));
+        }
+        if(!seq.contains(info, true)) seq.add(info);
+    }
+
+    static void remove(ObjectMap<String, Seq<PlayerInfo>> index, String key, PlayerInfo info){
+        Seq<PlayerInfo> seq = index.get(key);
+        if(seq != null && seq.remove(info, true) && seq.isEmpty()){
+            index.remove(key);
+        }
+    }
+
+    static void write(DataOutput out, PlayerInfo info) throws IOException{
+        writeString(out, info.id);
+        writeString(out, info.lastName);
+        writeString(out, info.lastIP);
+        writeString(out, info.adminUsid);
+        out.writeInt(info.timesKicked);
+        out.writeInt(info.timesJoined);
+        out.writeBoolean(info.banned);
+        out.writeBoolean(info.admin);
+        out.writeLong(info.lastKicked);
+
+        out.writeShort(info.ips.size);
+        for(String ip : info.ips){
+            writeString(out, ip);
+        }
+        out.writeShort(info.names.size);
+        for(String name : info.names){
+            writeString(out, name);
+        }
+    }
+
+    static PlayerInfo read(DataInput in) throws IOException{
+        PlayerInfo info = new PlayerInfo();
+        info.id = readString(in);
+        info.lastName = readString(in);
+        info.lastIP = readString(in);
+        info.adminUsid = readString(in);
+        info.timesKicked = in.readInt();
+        info.timesJoined = in.readInt();
+        info.banned = in.readBoolean();
+        info.admin = in.readBoolean();
+        info.lastKicked = in.readLong();
+
+        int ipCount = in.readUnsignedShort();
+        for(int i = 0; i < ipCount; i++){
+            info.ips.add(readString(in));
+        }
+        int nameCount = in.readUnsignedShort();
+        for(int i = 0; i < nameCount; i++){
+            info.names.add(readString(in));
+        }
+        return info;
+    }
+
+    static void writeString(DataOutput out, @Nullable String value) throws IOException{
+        out.writeBoolean(value != null);
+        if(value != null) out.writeUTF(value);
+    }
+
+    static @Nullable String readString(DataInput in) throws IOException{
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    static class Record{
+        PlayerInfo info;
+        /** Checksum of the last written version of this record. */
+        int checksum;
+        boolean written;
+        /** Keys this record is currently indexed under. */
+        @Nullable String[] ipKeys, nameKeys;
+    }
+}
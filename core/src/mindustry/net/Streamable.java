@@ -1,11 +1,37 @@
 package mindustry.net;
 
+import arc.math.*;
+import arc.util.*;
 import mindustry.net.Packets.*;
 
 import java.io.*;
 
 public class Streamable extends Packet{
     public transient ByteArrayInputStream stream;
+    /** Data to send as separate arrays, which connections can send without copying them. Used instead of {@link #stream} when set. */
+    public transient @Nullable byte[][] parts;
+
+    /** @return the data to send, as a stream. */
+    public ByteArrayInputStream stream(){
+        if(stream == null){
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            for(byte[] part : parts){
+                out.write(part, 0, part.length);
+            }
+            stream = new ByteArrayInputStream(out.toByteArray());
+        }
+        return stream;
+    }
+
+    /** @return the data to send, as parts. */
+    public byte[][] parts(){
+        if(parts == null){
+            byte[] bytes = new byte[stream.available()];
+            stream.read(bytes, 0, bytes.length);
+            parts = new byte[][]{bytes};
+        }
+        return parts;
+    }
 
     @Override
     public int getPriority(){
@@ -16,12 +42,14 @@ public class Streamable extends Packet{
         public final int id;
         public final byte type;
         public final int total;
-        public final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        public final ByteArrayOutputStream stream;
 
         public StreamBuilder(StreamBegin begin){
             id = begin.id;
             type = begin.type;
             total = begin.total;
+            //avoid growing the buffer while receiving, within reason
+            stream = new ByteArrayOutputStream(Mathf.clamp(total, 32, 1 << 24));
         }
 
         public float progress(){
@@ -0,0 +1,140 @@
+package mindustry.net;
+
+import arc.*;
+import arc.func.*;
+import arc.struct.*;
+import arc.util.*;
+import arc.util.io.*;
+import mindustry.game.EventType.*;
+import mindustry.gen.*;
+import mindustry.net.Administration.*;
+import mindustry.net.NetworkIO.*;
+
+import java.util.concurrent.*;
+
+import static mindustry.Vars.*;
+
+/**
+ * Compresses the shared parts of the world stream (rules, state, content header, map and team blocks) once, and reuses them for all players
+ * that join within a short window. The state and world are captured together on the main thread, so every player receives a snapshot of
+ * the same tick; compression happens on a background thread.
+ * */
+public class WorldStreamCache{
+    private final ExecutorService executor = Threads.executor(1);
+    /** Players waiting for world data, mapped to the version of the world they need data of. */
+    private final ObjectIntMap<Player> waiting = new ObjectIntMap<>();
+    private final Cons2<Player, byte[][]> sender;
+
+    private @Nullable DeflatedSection cachedState, cachedData;
+    private long dataTime;
+    /** Incremented every time the world changes in a way that makes cached data invalid. */
+    private int version;
+    private boolean compressing;
+
+    /** @param sender called on the main thread with a player and the parts of the compressed world stream to send them. */
+    public WorldStreamCache(Cons2<Player, byte[][]> sender){
+        this.sender = sender;
+
+        Events.on(WorldLoadEvent.class, e -> invalidate());
+        Events.on(TileChangeEvent.class, e -> invalidate());
+        Events.on(ConfigEvent.class, e -> invalidate());
+    }
+
+    /** Discards the cached world data. */
+    public void invalidate(){
+        version++;
+        cachedState = cachedData = null;
+    }
+
+    /** Sends the world data to a player, once it is available. */
+    public void send(Player player){
+        if(cachedData != null && Time.timeSinceMillis(dataTime) <= Config.worldStreamCacheTime.num()){
+            sender.get(player, NetworkIO.writeWorld(player, cachedState, cachedData));
+            return;
+        }
+
+        //a player that asks again (e.g. after a map change) needs data of the current world
+        waiting.put(player, version);
+
+        if(!compressing){
+            capture();
+        }
+    }
+
+    private void capture(){
+        int captured = version;
+        long start = Time.nanos();
+
+        //the world is written to uncompressed buffers on the main thread, so it is consistent
+        ReusableByteOutStream rawState = new ReusableByteOutStream(1024 * 4), rawData = new ReusableByteOutStream(1024 * 64);
+        try{
+            NetworkIO.writeWorldState(rawState);
+            NetworkIO.writeWorldData(rawData);
+        }catch(Throwable e){
+            Log.err("Failed to write world data", e);
+            finish(null, null, captured);
+            return;
+        }
+
+        float captureTime = Time.timeSinceNanos(start) / 1000000f;
+        compressing = true;
+
+        executor.submit(() -> {
+            DeflatedSection state = null, data = null;
+
+            try{
+                long compressStart = Time.nanos();
+
+                state = new DeflatedSection(rawState.getBytes(), 0, rawState.size(), false);
+                data = new DeflatedSection(rawData.getBytes(), 0, rawData.size(), true);
+
+                Log.debug("Captured world data in @ms, compressed @ bytes in @ms.", Strings.fixed(captureTime, 2), state.bytes.length + data.bytes.length, Strings.fixed(Time.timeSinceNanos(compressStart) / 1000000f, 2));
+            }catch(Throwable e){
+                Log.err("Failed to compress world data", e);
+            }finally{
+                //always hand back to the main thread, or no player could join again
+                DeflatedSection resultState = state, resultData = data;
+                Core.app.post(() -> finish(resultState, resultData, captured));
+            }
+        });
+    }
+
+    private void finish(@Nullable DeflatedSection state, @Nullable DeflatedSection data, int captured){
+        compressing = false;
+
+        if(state == null || data == null){
+            for(Player player : waiting.keys()){
+                if(player.con != null) player.con.kick("Failed to send world data.");
+            }
+            waiting.clear();
+            return;
+        }
+
+        if(captured == version){
+            cachedState = state;
+            cachedData = data;
+            dataTime = Time.millis();
+        }
+
+        //data captured after a player asked for it is valid for them, as they receive packets with any later tile or config changes;
+        //players that asked after an invalidation (including a world load) need a new capture
+        boolean stale = false;
+        for(var it = waiting.iterator(); it.hasNext();){
+            var entry = it.next();
+            Player player = entry.key;
+
+            if(player.con == null || !player.con.isConnected()){
+                it.remove();
+            }else if(entry.value > captured){
+                stale = true;
+            }else{
+                sender.get(player, NetworkIO.writeWorld(player, state, data));
+                it.remove();
+            }
+        }
+
+        if(stale){
+            capture();
+        }
+    }
+}
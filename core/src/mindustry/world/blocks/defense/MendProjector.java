@@ -5,6 +5,7 @@ import arc.graphics.g2d.*;
 import arc.math.*;
 import arc.util.*;
 import arc.util.io.*;
+import mindustry.ai.BlockIndexer.*;
 import mindustry.annotations.Annotations.*;
 import mindustry.content.*;
 import mindustry.gen.*;
@@ -71,12 +72,21 @@ public class MendProjector extends Block{
         float charge = Mathf.random(reload);
         float phaseHeat;
         float smoothEfficiency;
+        /** Buildings in range, which are only queried again when blocks in range change. */
+        @Nullable Coverage coverage;
 
         @Override
         public float range(){
             return range;
         }
 
+        @Override
+        public void onRemoved(){
+            indexer.removeCoverage(coverage);
+            coverage = null;
+            super.onRemoved();
+        }
+
         @Override
         public void updateTile(){
             smoothEfficiency = Mathf.lerpDelta(smoothEfficiency, efficiency(), 0.08f);
@@ -93,7 +103,8 @@ public class MendProjector extends Block{
                 float realRange = range + phaseHeat * phaseRangeBoost;
                 charge = 0f;
 
-                indexer.eachBlock(this, realRange, Building::damaged, other -> {
+                coverage = indexer.coverage(this, realRange, coverage);
+                coverage.each(Building::damaged, other -> {
                     other.heal(other.maxHealth() * (healPercent + phaseHeat * phaseBoost) / 100f * efficiency());
                     Fx.healBlockFull.at(other.x, other.y, other.block.size, baseColor);
                 });
@@ -110,7 +121,8 @@ public class MendProjector extends Block{
         public void drawSelect(){
             float realRange = range + phaseHeat * phaseRangeBoost;
 
-            indexer.eachBlock(this, realRange, other -> true, other -> Drawf.selected(other, Tmp.c1.set(baseColor).a(Mathf.absin(4f, 1f))));
+            coverage = indexer.coverage(this, realRange, coverage);
+            coverage.each(other -> true, other -> Drawf.selected(other, Tmp.c1.set(baseColor).a(Mathf.absin(4f, 1f))));
 
             Drawf.dashCircle(x, y, realRange, baseColor);
         }
@@ -7,6 +7,7 @@ import arc.math.*;
 import arc.math.geom.*;
 import arc.util.*;
 import arc.util.io.*;
+import mindustry.ai.BlockIndexer.*;
 import mindustry.annotations.Annotations.*;
 import mindustry.gen.*;
 import mindustry.graphics.*;
@@ -85,12 +86,21 @@ public class OverdriveProjector extends Block{
         float charge = Mathf.random(reload);
         float phaseHeat;
         float smoothEfficiency;
+        /** Buildings in range, which are only queried again when blocks in range change. */
+        @Nullable Coverage coverage;
 
         @Override
         public float range(){
             return range;
         }
 
+        @Override
+        public void onRemoved(){
+            indexer.removeCoverage(coverage);
+            coverage = null;
+            super.onRemoved();
+        }
+
         @Override
         public void drawLight(){
             Drawf.light(team, x, y, lightRadius * smoothEfficiency, baseColor, 0.7f * smoothEfficiency);
@@ -110,7 +120,8 @@ public class OverdriveProjector extends Block{
                 float realRange = range + phaseHeat * phaseRangeBoost;
 
                 charge = 0f;
-                indexer.eachBlock(this, realRange, other -> other.block.canOverdrive, other -> other.applyBoost(realBoost(), reload + 1f));
+                coverage = indexer.coverage(this, realRange, coverage);
+                coverage.each(other -> other.block.canOverdrive, other -> other.applyBoost(realBoost(), reload + 1f));
             }
 
             if(timer(timerUse, useTime) && efficiency() > 0 && consValid()){
@@ -126,7 +137,8 @@ public class OverdriveProjector extends Block{
         public void drawSelect(){
             float realRange = range + phaseHeat * phaseRangeBoost;
 
-            indexer.eachBlock(this, realRange, other -> other.block.canOverdrive, other -> Drawf.selected(other, Tmp.c1.set(baseColor).a(Mathf.absin(4f, 1f))));
+            coverage = indexer.coverage(this, realRange, coverage);
+            coverage.each(other -> other.block.canOverdrive, other -> Drawf.selected(other, Tmp.c1.set(baseColor).a(Mathf.absin(4f, 1f))));
 
             Drawf.dashCircle(x, y, realRange, baseColor);
         }
@@ -289,14 +289,22 @@ public class LogicBlock extends Block{
         public void updateCode(String str, boolean keep, Cons<LAssembler> assemble){
             if(str != null){
                 code = str;
+                LAssembler asm = null;
 
                 try{
-                    //create assembler to store extra variables
-                    LAssembler asm = LAssembler.assemble(str);
+                    Seq<String> linkNames = new Seq<>();
+                    for(LogicLink link : links){
+                        if(link.active && (link.valid = validLink(world.build(link.x, link.y)))){
+                            linkNames.add(link.name);
+                        }
+                    }
+
+                    //create assembler to store extra variables; injected variables may change the program, so it can't be shared
+                    asm = assemble == null ? logicPrograms.assemble(str, linkNames) : LAssembler.assemble(str);
 
                     //store connections
                     for(LogicLink link : links){
-                        if(link.active && (link.valid = validLink(world.build(link.x, link.y)))){
+                        if(link.active && link.valid){
                             asm.putConst(link.name, world.build(link.x, link.y));
                         }
                     }
@@ -321,12 +329,12 @@ public class LogicBlock extends Block{
 
                     if(keep){
                         //store any older variables
-                        for(Var var : executor.vars){
-                            boolean unit = var.name.equals("@unit");
-                            if(!var.constant || unit){
-                                BVar dest = asm.getVar(var.name);
+                        for(int i = 0; i < executor.names.length; i++){
+                            boolean unit = executor.names[i].equals("@unit");
+                            if(!executor.constant[i] || unit){
+                                BVar dest = asm.getVar(executor.names[i]);
                                 if(dest != null && (!dest.constant || unit)){
-                                    dest.value = var.isobj ? var.objval : var.numval;
+                                    dest.value = executor.value(i);
                                 }
                             }
                         }
@@ -343,12 +351,21 @@ public class LogicBlock extends Block{
 
                     executor.load(asm);
                 }catch(Exception e){
+                    //the program may have been added to the cache without being loaded
+                    if(asm != null) logicPrograms.discard(asm);
+
                     //handle malformed code and replace it with nothing
                     executor.load(code = "");
                 }
             }
         }
 
+        @Override
+        public void onRemoved(){
+            super.onRemoved();
+            executor.unload();
+        }
+
         //logic blocks cause write problems when picked up
         @Override
         public boolean canPickup(){
@@ -431,11 +448,25 @@ public class LogicBlock extends Block{
 
                 if(accumulator > maxInstructionScale * instructionsPerTick) accumulator = maxInstructionScale * instructionsPerTick;
 
-                for(int i = 0; i < (int)accumulator; i++){
-                    if(executor.initialized()){
-                        executor.runOnce();
+                //every instruction uses up one unit of the accumulator, which also lowers the amount of instructions left to run
+                int amount = 0;
+                while(amount < (int)(accumulator - amount)) amount++;
+                accumulator -= amount;
+
+                if(executor.initialized()){
+                    if(logicProfiler.enabled()){
+                        logicProfiler.track(this);
+                    }
+
+                    if(logicScheduler.active()){
+                        logicScheduler.submit(executor, amount);
+                    }else{
+                        long time = Time.nanos();
+                        for(int i = 0; i < amount; i++){
+                            executor.runOnce();
+                        }
+                        executor.cpuTime += Time.timeSinceNanos(time);
                     }
-                    accumulator --;
                 }
             }
         }
@@ -526,18 +557,19 @@ public class LogicBlock extends Block{
             write.b(compressed);
 
             //write only the non-constant variables
-            int count = Structs.count(executor.vars, v -> !v.constant);
+            int count = 0;
+            for(boolean constant : executor.constant){
+                if(!constant) count++;
+            }
 
             write.i(count);
-            for(int i = 0; i < executor.vars.length; i++){
-                Var v = executor.vars[i];
-
-                if(v.constant) continue;
+            for(int i = 0; i < executor.names.length; i++){
+                if(executor.constant[i]) continue;
 
                 //write the name and the object value
-                write.str(v.name);
+                write.str(executor.names[i]);
 
-                Object value = v.isobj ? v.objval : v.numval;
+                Object value = executor.value(i);
                 if(value instanceof Unit) value = null; //do not save units.
                 TypeIO.writeObject(write, value);
             }
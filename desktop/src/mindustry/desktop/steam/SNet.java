@@ -222,6 +222,12 @@ public class SNet implements SteamNetworkingCallback, SteamMatchmakingCallback,
         steamConnections.clear();
     }
 
+    @Override
+    public Object encode(Packet packet){
+        //steam and provider connections use the same serializer
+        return serializer.encode(packet);
+    }
+
     @Override
     public Iterable<? extends NetConnection> getConnections(){
         //merge provider connections
@@ -411,7 +417,7 @@ public class SNet implements SteamNetworkingCallback, SteamMatchmakingCallback,
         }
 
         @Override
-        public void send(Object object, boolean reliable){
+        protected void sendDirect(Object object, boolean reliable){
             try{
                 writeBuffer.limit(writeBuffer.capacity());
                 writeBuffer.position(0);
@@ -439,6 +445,7 @@ public class SNet implements SteamNetworkingCallback, SteamMatchmakingCallback,
 
         @Override
         public void close(){
+            flushBatch();
             disconnectSteamUser(sid);
         }
     }
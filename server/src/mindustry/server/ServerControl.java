@@ -9,12 +9,14 @@ import arc.util.CommandHandler.*;
 import arc.util.Timer.*;
 import arc.util.serialization.*;
 import arc.util.serialization.JsonValue.*;
+import mindustry.async.*;
 import mindustry.core.GameState.*;
 import mindustry.core.*;
 import mindustry.game.EventType.*;
 import mindustry.game.*;
 import mindustry.gen.*;
 import mindustry.io.*;
+import mindustry.logic.*;
 import mindustry.maps.Map;
 import mindustry.maps.*;
 import mindustry.maps.Maps.*;
@@ -23,6 +25,7 @@ import mindustry.net.Administration.*;
 import mindustry.net.Packets.*;
 import mindustry.net.*;
 import mindustry.type.*;
+import mindustry.world.blocks.logic.LogicBlock.*;
 
 import java.io.*;
 import java.net.*;
@@ -79,6 +82,9 @@ public class ServerControl implements ApplicationListener{
 
         //update log level
         Config.debug.set(Config.debug.bool());
+        Config.physicsThreads.set(Config.physicsThreads.num());
+        Config.logicCompile.set(Config.logicCompile.bool());
+        Config.logicThreads.set(Config.logicThreads.num());
 
         try{
             lastMode = Gamemode.valueOf(Core.settings.getString("lastServerMode", "survival"));
@@ -228,8 +234,13 @@ public class ServerControl implements ApplicationListener{
                     info("Autosaving...");
 
                     try{
-                        SaveIO.save(file);
-                        info("Autosave completed.");
+                        SaveIO.saveAsync(file, error -> {
+                            if(error == null){
+                                info("Autosave completed.");
+                            }else{
+                                err("Autosave failed.", error);
+                            }
+                        });
                     }catch(Throwable e){
                         err("Autosave failed.", e);
                     }
@@ -413,7 +424,27 @@ public class ServerControl implements ApplicationListener{
 
                 info("  @ FPS, @ MB used.", Core.graphics.getFramesPerSecond(), Core.app.getJavaHeap() / 1024 / 1024);
 
+                PhysicsProcess physics = asyncCore.process(PhysicsProcess.class);
+                if(physics != null && physics.physics() != null){
+                    info("  Physics: @ bodies on @ threads, @ms sort / @ms solve, @ms waited.", physics.physics().size(), asyncCore.physicsThreads,
+                        Strings.fixed(physics.physics().sortTime / 1000000f, 2), Strings.fixed(physics.physics().solveTime / 1000000f, 2), Strings.fixed(asyncCore.waitTime / 1000000f, 2));
+                }
+
+                for(NetConnection con : net.getConnections()){
+                    float progress = con.streamProgress();
+                    if(progress >= 0f){
+                        info("  Sending world to @: @%", con.address, (int)(progress * 100));
+                    }
+                }
+
                 if(Groups.player.size() > 0){
+                    info("  Sync: @ KB of entity snapshots sent, @ entities sent / @ skipped / @ unchanged, @ms last sync.",
+                        netServer.snapshotBytesSent / 1024, netServer.snapshotEntitiesSent, netServer.snapshotEntitiesSkipped, netServer.snapshotEntitiesUnchanged, Strings.fixed(netServer.lastSyncTime / 1000000f, 2));
+                    info("  Broadcast: @ packets encoded once, @ encodings / @ms saved.",
+                        net.broadcastPackets, net.broadcastEncodesSaved, Strings.fixed(net.broadcastNanosSaved / 1000000f, 2));
+                    if(Config.packetBatching.bool()){
+                        info("  Batching: @ packets sent in @ batches.", net.batchedPackets, net.batchesSent);
+                    }
                     info("  Players: @", Groups.player.size());
                     for(Player p : Groups.player){
                         info("    @ @ / @", p.admin() ? "&r[A]&c" : "&b[P]&c", p.plainName(), p.uuid());
@@ -783,6 +814,7 @@ public class ServerControl implements ApplicationListener{
 
             if(info != null){
                 info.lastKicked = 0;
+                netServer.admins.updateInfo(info);
                 info("Pardoned player: @", info.plainLastName());
             }else{
                 err("That ID can't be found.");
@@ -953,6 +985,81 @@ public class ServerControl implements ApplicationListener{
             }
         });
 
+        handler.register("logicprofile", "<on/off/reset/top> [amount]", "Profile logic processors, or list the processors and instructions that take the most time.", arg -> {
+            switch(arg[0]){
+                case "on" -> {
+                    logicProfiler.setEnabled(true);
+                    info("Logic profiler enabled.");
+                }
+                case "off" -> {
+                    logicProfiler.setEnabled(false);
+                    info("Logic profiler disabled.");
+                }
+                case "reset" -> {
+                    logicProfiler.reset();
+                    info("Logic profiler data cleared.");
+                }
+                case "top" -> {
+                    if(!logicProfiler.enabled()){
+                        err("The logic profiler is not enabled. Use 'logicprofile on' first.");
+                        return;
+                    }
+
+                    if(arg.length > 1 && !Strings.canParseInt(arg[1])){
+                        err("Invalid amount.");
+                        return;
+                    }
+
+                    int amount = arg.length > 1 ? Strings.parseInt(arg[1]) : 10;
+                    float seconds = Math.max(logicProfiler.duration() / 1000f, 0.001f);
+
+                    info("Processors (over @ seconds):", Strings.fixed(seconds, 1));
+                    for(LogicBuild build : logicProfiler.topBuilds(amount)){
+                        LogicProfiler.Profile profile = build.executor.profile;
+                        info("  @ at @, @ (@): @ instructions, @ms, @ms/s", build.block.name, build.tileX(), build.tileY(), build.team.name,
+                            profile.count, Strings.fixed(profile.time / 1000000f, 2), Strings.fixed(profile.time / 1000000f / seconds, 3));
+                    }
+
+                    info("Instructions:");
+                    for(LogicProfiler.InstructionStats stats : logicProfiler.topInstructions(amount)){
+                        info("  @: @ runs, @ms, @ns each", stats.name, stats.count, Strings.fixed(stats.time / 1000000f, 2), stats.time / Math.max(stats.count, 1));
+                    }
+                }
+                default -> err("Invalid usage. Use on, off, reset or top.");
+            }
+        });
+
+        handler.register("processors", "[amount]", "List the logic processors that have used the most CPU time since they were placed or loaded.", arg -> {
+            if(arg.length > 0 && !Strings.canParseInt(arg[0])){
+                err("Invalid amount.");
+                return;
+            }
+
+            int amount = arg.length > 0 ? Strings.parseInt(arg[0]) : 10;
+            Seq<LogicBuild> builds = new Seq<>();
+            long total = 0;
+
+            for(Building build : Groups.build){
+                if(build instanceof LogicBuild logic){
+                    builds.add(logic);
+                    total += logic.executor.cpuTime;
+                }
+            }
+
+            if(builds.isEmpty()){
+                info("No logic processors found.");
+                return;
+            }
+
+            builds.sort((a, b) -> Long.compare(b.executor.cpuTime, a.executor.cpuTime));
+
+            info("Processors by CPU time (@ processors, @ms in total):", builds.size, Strings.fixed(total / 1000000f, 2));
+            for(int i = 0; i < Math.min(amount, builds.size); i++){
+                LogicBuild build = builds.get(i);
+                info("  @ at @, @ (@): @ms", build.block.name, build.tileX(), build.tileY(), build.team.name, Strings.fixed(build.executor.cpuTime / 1000000f, 2));
+            }
+        });
+
         handler.register("gc", "Trigger a garbage collection. Testing only.", arg -> {
             int pre = (int)(Core.app.getJavaHeap() / 1024 / 1024);
             System.gc();
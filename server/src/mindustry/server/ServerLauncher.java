@@ -21,6 +21,9 @@ import static mindustry.server.ServerControl.*;
 public class ServerLauncher implements ApplicationListener{
     static String[] args;
 
+    private final StringBuilder phases = new StringBuilder();
+    private long startTime, phaseTime;
+
     public static void main(String[] args){
         try{
             ServerLauncher.args = args;
@@ -39,16 +42,24 @@ public class ServerLauncher implements ApplicationListener{
 
     @Override
     public void init(){
+        startTime = phaseTime = Time.nanos();
+
         Core.settings.setDataDirectory(Core.files.local("config"));
         loadLocales = false;
         headless = true;
 
         Vars.loadSettings();
+        phase("settings");
         Vars.init();
+        phase("init");
         content.createBaseContent();
+        phase("base content");
         mods.loadScripts();
+        phase("scripts");
         content.createModContent();
+        phase("mod content");
         content.init();
+        phase("content init");
         if(mods.hasContentErrors()){
             err("Error occurred loading mod content:");
             for(LoadedMod mod : mods.list()){
@@ -64,6 +75,7 @@ public class ServerLauncher implements ApplicationListener{
         }
 
         bases.load();
+        phase("bases");
 
         Core.app.addListener(new ApplicationListener(){public void update(){ asyncCore.begin(); }});
         Core.app.addListener(logic = new Logic());
@@ -72,7 +84,18 @@ public class ServerLauncher implements ApplicationListener{
         Core.app.addListener(new ApplicationListener(){public void update(){ asyncCore.end(); }});
 
         mods.eachClass(Mod::init);
+        phase("mod init");
 
         Events.fire(new ServerLoadEvent());
+        phase("load event");
+
+        info("Started in @ms (@).", Strings.fixed(Time.timeSinceNanos(startTime) / 1000000f, 1), phases);
+    }
+
+    /** Records the time taken since the last phase ended. */
+    private void phase(String name){
+        if(phases.length() > 0) phases.append(", ");
+        phases.append(name).append(": ").append(Strings.fixed(Time.timeSinceNanos(phaseTime) / 1000000f, 1)).append("ms");
+        phaseTime = Time.nanos();
     }
 }
@@ -1,29 +1,47 @@
 import arc.*;
 import arc.backend.headless.*;
 import arc.files.*;
+import arc.func.*;
+import arc.math.*;
 import arc.math.geom.*;
+import arc.net.*;
 import arc.struct.*;
 import arc.util.*;
+import arc.util.async.*;
 import arc.util.io.*;
 import arc.util.serialization.*;
 import arc.util.serialization.JsonValue.*;
 import mindustry.*;
+import mindustry.ai.*;
+import mindustry.ai.BlockIndexer.*;
+import mindustry.ai.Pathfinder.*;
+import mindustry.async.PhysicsProcess.PhysicsWorld.*;
+import mindustry.async.PhysicsProcess.*;
 import mindustry.content.*;
 import mindustry.core.*;
 import mindustry.core.GameState.*;
 import mindustry.ctype.*;
+import mindustry.entities.*;
 import mindustry.entities.units.*;
 import mindustry.game.*;
 import mindustry.gen.*;
 import mindustry.io.*;
 import mindustry.io.SaveIO.*;
+import mindustry.logic.*;
+import mindustry.logic.LExecutor.*;
 import mindustry.maps.*;
 import mindustry.mod.*;
 import mindustry.mod.Mods.*;
 import mindustry.net.*;
+import mindustry.net.Administration.*;
+import mindustry.net.Net.*;
 import mindustry.net.Packets.*;
 import mindustry.type.*;
 import mindustry.world.*;
+import mindustry.world.blocks.defense.*;
+import mindustry.world.blocks.defense.turrets.*;
+import mindustry.world.blocks.distribution.Sorter.*;
+import mindustry.world.blocks.logic.LogicBlock.*;
 import mindustry.world.blocks.payloads.*;
 import mindustry.world.blocks.storage.*;
 import org.junit.jupiter.api.*;
@@ -32,6 +50,9 @@ import org.junit.jupiter.params.provider.*;
 
 import java.io.*;
 import java.nio.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.zip.*;
 
 import static mindustry.Vars.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -363,6 +384,585 @@ public class ApplicationTests{
         assertTrue(state.teams.playerCores().size > 0);
     }
 
+    @Test
+    void saveAfterAsyncSave(){
+        world.loadMap(testMap);
+        Fi file = saveDirectory.child("async.msav");
+
+        //an autosave that is still being written must not replace a newer save
+        state.wave = 3;
+        SaveIO.saveAsync(file, null);
+        state.wave = 7;
+        SaveIO.save(file);
+
+        assertEquals(7, SaveIO.getMeta(file).wave);
+        assertEquals(3, SaveIO.getMeta(SaveIO.getBackupStream(file)).wave);
+
+        file.delete();
+        SaveIO.backupFileFor(file).delete();
+    }
+
+    @Test
+    void saveMetaIndex(){
+        world.loadMap(testMap);
+        Fi file = saveDirectory.child("indexed.msav");
+        SaveIO.save(file);
+
+        MetaIndex index = MetaIndex.of(file);
+        int misses = index.misses;
+
+        assertTrue(SaveIO.isSaveValid(file));
+        SaveMeta meta = SaveIO.getMeta(file);
+        assertEquals(state.map.name(), meta.tags.get("mapname"));
+        assertEquals(misses + 1, index.misses, "Metadata must only be read once");
+
+        //the index is read back from disk
+        index.flush();
+        MetaIndex loaded = new MetaIndex(saveDirectory.child(MetaIndex.fileName));
+        assertTrue(loaded.get(file).save);
+        assertEquals(1, loaded.hits);
+
+        //files that are written again must be read again
+        state.wave = 12;
+        SaveIO.save(file);
+        assertEquals(12, SaveIO.getMeta(file).wave);
+
+        saveDirectory.child("invalid.msav").writeString("not a save");
+        assertFalse(SaveIO.isSaveValid(saveDirectory.child("invalid.msav")));
+    }
+
+    @Test
+    void playerDatabase(){
+        Fi file = Core.settings.getDataDirectory().child("players-test.db");
+        file.delete();
+
+        PlayerDatabase db = new PlayerDatabase(file);
+        int amount = 100_000;
+
+        Time.mark();
+        for(int i = 0; i < amount; i++){
+            PlayerInfo info = new PlayerInfo();
+            info.id = "id" + i;
+            info.lastName = "[red]Player" + i;
+            info.lastIP = "10.0." + (i / 256 % 256) + "." + (i % 256);
+            info.names.add(info.lastName);
+            info.ips.add(info.lastIP);
+            db.put(info);
+        }
+        db.save();
+        Log.info(Time.elapsed() + "ms to write " + amount + " players");
+
+        Time.mark();
+        assertEquals(1, db.byName("player123").size);
+        assertEquals(amount / 65536 + 1, db.byIP("10.0.0.1").size);
+        Log.info(Time.elapsed() + "ms for indexed lookups");
+
+        //only modified records are appended
+        long length = file.length();
+        PlayerInfo info = db.get("id5");
+        info.timesJoined = 3;
+        info.names.add("renamed");
+        db.touch(info);
+        //plain reads are not checked on save
+        db.get("id6").timesJoined = 4;
+        db.save();
+        assertTrue(file.length() - length < 200, "Only one record must be written");
+        assertEquals(1, db.byName("RENAMED").size);
+
+        Time.mark();
+        PlayerDatabase loaded = new PlayerDatabase(file);
+        Log.info(Time.elapsed() + "ms to load " + amount + " players");
+
+        assertEquals(amount, loaded.size());
+        assertEquals(3, loaded.get("id5").timesJoined);
+        assertEquals(0, loaded.get("id6").timesJoined);
+        assertEquals("id5", loaded.byName("renamed").first().id);
+
+        //a torn record at the end only loses that record
+        file.writeBytes(new byte[]{0, 0, 1, 0, 5}, true);
+        assertEquals(amount, new PlayerDatabase(file).size());
+
+        file.delete();
+        file.sibling(file.name() + ".damaged").delete();
+    }
+
+    @Test
+    void broadcastEncodedOnce(){
+        ArcNetProvider.PacketSerializer serializer = new ArcNetProvider.PacketSerializer();
+
+        StreamBegin packet = new StreamBegin();
+        packet.total = 1234;
+        packet.type = 3;
+
+        ByteBuffer direct = ByteBuffer.allocate(1024);
+        serializer.write(direct, packet);
+
+        //encoded packets are written as-is, and can be written any amount of times
+        ArcNetProvider.EncodedPacket encoded = serializer.encode(packet);
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        serializer.write(buffer, encoded);
+        serializer.write(buffer, encoded);
+
+        assertEquals(direct.position() * 2, buffer.position());
+        direct.flip();
+        assertEquals(direct, ByteBuffer.wrap(encoded.bytes));
+
+        buffer.flip();
+        for(int i = 0; i < 2; i++){
+            StreamBegin read = (StreamBegin)serializer.read(buffer);
+            assertEquals(packet.id, read.id);
+            assertEquals(1234, read.total);
+            assertEquals(3, read.type);
+        }
+    }
+
+    @Test
+    void packetBatchBench() throws Exception{
+        Net.registerPacket(ConfigBenchPacket::new);
+
+        int testPort = port + 12, ticks = 200, perTick = 100, total = ticks * perTick;
+        AtomicInteger writes = new AtomicInteger(), received = new AtomicInteger();
+        AtomicLong written = new AtomicLong();
+        AtomicBoolean ordered = new AtomicBoolean(true);
+        CountDownLatch[] done = {null};
+
+        Server server = new Server(1 << 22, 8192, new ArcNetProvider.PacketSerializer(){
+            @Override
+            public void write(ByteBuffer byteBuffer, Object o){
+                int start = byteBuffer.position();
+                super.write(byteBuffer, o);
+
+                if(!(o instanceof FrameworkMessage)){
+                    written.addAndGet(byteBuffer.position() - start);
+                    writes.incrementAndGet();
+                }
+            }
+        });
+        Client client = new Client(8192, 8192, new ArcNetProvider.PacketSerializer());
+        ArcNetProvider.PacketSerializer batchReader = new ArcNetProvider.PacketSerializer();
+        Connection[] serverConnection = {null};
+
+        Cons<Object> receive = object -> {
+            if(((ConfigBenchPacket)object).pos != received.getAndIncrement()) ordered.set(false);
+            if(received.get() == total) done[0].countDown();
+        };
+
+        server.addListener(new NetListener(){
+            @Override
+            public void connected(Connection connection){
+                serverConnection[0] = connection;
+            }
+        });
+
+        client.addListener(new NetListener(){
+            @Override
+            public void received(Connection connection, Object object){
+                if(object instanceof PacketBatch batch){
+                    ByteBuffer data = ByteBuffer.wrap(batch.data);
+                    while(data.hasRemaining()){
+                        receive.get(batchReader.read(data));
+                    }
+                }else if(object instanceof ConfigBenchPacket){
+                    receive.get(object);
+                }
+            }
+        });
+
+        server.bind(testPort, testPort);
+        Threads.daemon("Bench Server", () -> {
+            try{
+                server.run();
+            }catch(Exception ignored){
+            }
+        });
+        Threads.daemon("Bench Client", () -> {
+            try{
+                client.run();
+            }catch(Exception ignored){
+            }
+        });
+
+        Net previous = net;
+        Seq<NetConnection> connections = new Seq<>();
+        net = new Net(new NetProvider(){
+            @Override public void connectClient(String ip, int port, Runnable success){}
+            @Override public void sendClient(Object object, boolean reliable){}
+            @Override public void disconnectClient(){}
+            @Override public void discoverServers(Cons<Host> callback, Runnable done){}
+            @Override public void pingHost(String address, int port, Cons<Host> valid, Cons<Exception> failed){}
+            @Override public void hostServer(int port){}
+            @Override public Iterable<? extends NetConnection> getConnections(){ return connections; }
+            @Override public void closeServer(){}
+        });
+
+        try{
+            client.connect(5000, "127.0.0.1", testPort, testPort);
+            for(int i = 0; i < 500 && serverConnection[0] == null; i++){
+                Thread.sleep(10);
+            }
+            assertNotNull(serverConnection[0]);
+            connections.add(new LoopbackConnection(serverConnection[0]));
+
+            net.host(port);
+            int[] packetWrites = new int[2];
+            long[] bytes = new long[2];
+
+            for(int mode = 0; mode < 2; mode++){
+                Config.packetBatching.set(mode == 1);
+                writes.set(0);
+                written.set(0);
+                received.set(0);
+                done[0] = new CountDownLatch(1);
+
+                Time.mark();
+                for(int t = 0; t < ticks; t++){
+                    for(int i = 0; i < perTick; i++){
+                        ConfigBenchPacket packet = new ConfigBenchPacket();
+                        packet.pos = t * perTick + i;
+                        packet.value = i % 7;
+                        net.send(packet, true);
+                    }
+                    net.flushBatches();
+                }
+
+                assertTrue(done[0].await(60, TimeUnit.SECONDS), "All packets must be received");
+                float elapsed = Time.elapsed();
+                assertTrue(ordered.get(), "Packets must be received in order");
+
+                packetWrites[mode] = writes.get();
+                bytes[mode] = written.get();
+                Log.info(elapsed + "ms " + (mode == 1 ? "batched" : "unbatched") + " over loopback: " + (int)(total / Math.max(elapsed, 0.001f)) + " packets/ms, " +
+                    packetWrites[mode] + " writes, " + bytes[mode] + " bytes on the wire");
+            }
+
+            assertTrue(packetWrites[1] < packetWrites[0] / 10, "Batching must reduce the amount of writes");
+            assertTrue(bytes[1] < bytes[0], "Batching must reduce the amount of bytes sent");
+        }finally{
+            Config.packetBatching.set(false);
+            net = previous;
+            client.stop();
+            server.stop();
+        }
+    }
+
+    /** A small packet similar to a block configuration. */
+    public static class ConfigBenchPacket extends Packet{
+        public int pos, value;
+
+        @Override
+        public void write(Writes write){
+            write.i(pos);
+            write.i(value);
+        }
+
+        @Override
+        public void read(Reads read){
+            pos = read.i();
+            value = read.i();
+        }
+    }
+
+    /** Sends packets to a client over a local connection, as the server does. */
+    static class LoopbackConnection extends NetConnection{
+        final Connection connection;
+
+        LoopbackConnection(Connection connection){
+            super("127.0.0.1");
+            this.connection = connection;
+        }
+
+        @Override
+        protected void sendDirect(Object object, boolean reliable){
+            connection.sendTCP(object);
+        }
+
+        @Override
+        public void close(){
+            connection.close(DcReason.closed);
+        }
+    }
+
+    @Test
+    void worldStreamSections() throws IOException{
+        world.loadMap(testMap);
+        Player player = Player.create();
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        NetworkIO.writeWorld(player, expected);
+
+        ByteArrayOutputStream state = new ByteArrayOutputStream(), data = new ByteArrayOutputStream();
+        NetworkIO.writeWorldState(state);
+        NetworkIO.writeWorldData(data);
+        byte[][] parts = NetworkIO.writeWorld(player,
+            new NetworkIO.DeflatedSection(state.toByteArray(), 0, state.size(), false),
+            new NetworkIO.DeflatedSection(data.toByteArray(), 0, data.size(), true));
+
+        //the joined sections must be one zlib stream, which clients of the same version can read
+        ByteArrayOutputStream joined = new ByteArrayOutputStream(), inflated = new ByteArrayOutputStream();
+        for(byte[] part : parts){
+            joined.write(part);
+        }
+        Streams.copy(new InflaterInputStream(new ByteArrayInputStream(joined.toByteArray())), inflated);
+
+        assertArrayEquals(expected.toByteArray(), inflated.toByteArray());
+    }
+
+    @Test
+    void worldStreamBench() throws Exception{
+        //compressed world data of a large map is close to random
+        byte[] world = new byte[8 * 1024 * 1024];
+        new Rand(5).nextBytes(world);
+
+        int testPort = port + 11;
+        Server server = new Server(32768, 8192, new ArcNetProvider.PacketSerializer());
+        Client client = new Client(8192, 8192, new ArcNetProvider.PacketSerializer());
+        Connection[] serverConnection = {null};
+        AtomicInteger received = new AtomicInteger(), chunks = new AtomicInteger();
+        CountDownLatch[] done = {null};
+
+        server.addListener(new NetListener(){
+            @Override
+            public void connected(Connection connection){
+                serverConnection[0] = connection;
+            }
+        });
+
+        client.addListener(new NetListener(){
+            @Override
+            public void received(Connection connection, Object object){
+                if(object instanceof StreamChunk chunk){
+                    chunks.incrementAndGet();
+                    if(received.addAndGet(chunk.data.length) >= world.length) done[0].countDown();
+                }
+            }
+        });
+
+        server.bind(testPort, testPort);
+        Threads.daemon("Bench Server", () -> {
+            try{
+                server.run();
+            }catch(Exception ignored){
+            }
+        });
+        Threads.daemon("Bench Client", () -> {
+            try{
+                client.run();
+            }catch(Exception ignored){
+            }
+        });
+
+        try{
+            client.connect(5000, "127.0.0.1", testPort, testPort);
+            for(int i = 0; i < 500 && serverConnection[0] == null; i++){
+                Thread.sleep(10);
+            }
+            assertNotNull(serverConnection[0]);
+
+            for(int mode = 0; mode < 2; mode++){
+                received.set(0);
+                chunks.set(0);
+                done[0] = new CountDownLatch(1);
+                Connection con = serverConnection[0];
+
+                Time.mark();
+                if(mode == 0){
+                    //the previous sender, with a copied 512-byte chunk per packet
+                    con.addListener(new InputStreamSender(new ByteArrayInputStream(world), 512){
+                        @Override
+                        protected void start(){
+                        }
+
+                        @Override
+                        protected Object next(byte[] bytes){
+                            StreamChunk chunk = new StreamChunk();
+                            chunk.data = bytes;
+                            return chunk;
+                        }
+                    });
+                }else{
+                    con.addListener(new ArcNetProvider.StreamSender(new byte[][]{world}, (byte)0));
+                }
+
+                assertTrue(done[0].await(120, TimeUnit.SECONDS), "The stream must be received");
+                float elapsed = Time.elapsed();
+
+                Log.info(elapsed + "ms to stream " + world.length / 1024 + " KB " + (mode == 0 ? "in 512-byte chunks" : "in adaptive chunks") + ": " +
+                    chunks.get() + " chunks, " + (int)(world.length / 1024f / Math.max(elapsed / 1000f, 0.001f)) + " KB/s");
+            }
+        }finally{
+            client.stop();
+            server.stop();
+        }
+    }
+
+    @Test
+    void projectorCoverageBench(){
+        Tiles tiles = world.resize(120, 120);
+        world.beginMapLoad();
+        tiles.fill();
+        world.endMapLoad();
+        state.set(State.playing);
+
+        //a dense base: rows of mend projectors between rows of walls
+        Seq<Building> projectors = new Seq<>();
+        for(int x = 2; x < 118; x += 2){
+            for(int y = 2; y < 116; y += 4){
+                world.tile(x, y).setBlock(Blocks.mendProjector, Team.sharded);
+                projectors.add(world.tile(x, y).build);
+                for(int dx = 0; dx < 2; dx++){
+                    for(int dy = 2; dy < 4; dy++){
+                        world.tile(x + dx, y + dy).setBlock(Blocks.copperWall, Team.sharded);
+                    }
+                }
+            }
+        }
+
+        float range = ((MendProjector)Blocks.mendProjector).range;
+        int rounds = 20, found = 0;
+
+        Time.mark();
+        for(int r = 0; r < rounds; r++){
+            for(Building build : projectors){
+                indexer.eachBlock(build, range, other -> true, other -> {});
+            }
+        }
+        Log.info(Time.elapsed() + "ms for " + rounds * projectors.size + " radius queries");
+
+        Coverage[] coverages = new Coverage[projectors.size];
+        int lookups = indexer.coverageLookups, hits = indexer.coverageHits;
+
+        Time.mark();
+        for(int r = 0; r < rounds; r++){
+            for(int i = 0; i < projectors.size; i++){
+                coverages[i] = indexer.coverage(projectors.get(i), range, coverages[i]);
+                found += coverages[i].buildings.size;
+            }
+        }
+        Log.info(Time.elapsed() + "ms for " + rounds * projectors.size + " coverage lookups, " + (indexer.coverageHits - hits) + " cached");
+
+        assertTrue(found > 0);
+        assertEquals(rounds * projectors.size, indexer.coverageLookups - lookups);
+        assertEquals((rounds - 1) * projectors.size, indexer.coverageHits - hits);
+
+        //removing a wall only invalidates coverages that can reach it
+        Tile wall = world.tile(60, 64);
+        Building removed = wall.build;
+        wall.setAir();
+
+        hits = indexer.coverageHits;
+        for(int i = 0; i < projectors.size; i++){
+            coverages[i] = indexer.coverage(projectors.get(i), range, coverages[i]);
+            assertFalse(coverages[i].buildings.contains(removed, true), "Removed buildings must not be covered");
+        }
+        int queried = projectors.size - (indexer.coverageHits - hits);
+        assertTrue(queried > 0 && queried < projectors.size / 10, "Only nearby coverages must be queried again, was " + queried);
+
+        //projectors use their coverage when they reload
+        state.rules.teams.get(Team.sharded).cheat = true;
+        lookups = indexer.coverageLookups;
+        updateBlocks(300);
+        assertTrue(indexer.coverageLookups > lookups);
+    }
+
+    @Test
+    void turretTargetingBench(){
+        int rounds = 40;
+        Rand rand = new Rand(5);
+
+        Tiles tiles = world.resize(340, 60);
+        world.beginMapLoad();
+        tiles.fill();
+        world.endMapLoad();
+        state.set(State.playing);
+
+        //a long defensive line of ground and air turrets, with anti-air behind it
+        Seq<Building> turrets = new Seq<>();
+        for(int x = 10; x < 310; x++){
+            world.tile(x, 20).setBlock(x % 2 == 0 ? Blocks.duo : Blocks.hail, Team.sharded);
+            turrets.add(world.tile(x, 20).build);
+        }
+        for(int x = 10; x < 310; x += 10){
+            world.tile(x, 16).setBlock(Blocks.scatter, Team.sharded);
+            turrets.add(world.tile(x, 16).build);
+        }
+
+        //enemy blocks of different priorities, and derelict blocks that are not targeted
+        for(int x = 30; x < 60; x++){
+            world.tile(x, 34).setBlock(Blocks.copperWall, Team.crux);
+            world.tile(x + 100, 24).setBlock(Blocks.copperWall, Team.derelict);
+        }
+        world.tile(45, 36).setBlock(Blocks.duo, Team.crux);
+
+        //a wave of air and ground units attacking one end of the line
+        Seq<Unit> units = new Seq<>();
+        for(int i = 0; i < 400; i++){
+            Unit unit = (i % 3 == 0 ? UnitTypes.flare : UnitTypes.dagger).create(Team.crux);
+            unit.set(rand.random(0f, 70f) * tilesize, rand.random(22f, 50f) * tilesize);
+            unit.add();
+            units.add(unit);
+        }
+        state.teams.updateTeamStats();
+
+        Units.Sortf[] sorts = {UnitSorts.closest, UnitSorts.farthest, UnitSorts.strongest};
+
+        for(int r = 0; r < 5; r++){
+            moveUnits(units, rand);
+            state.teams.updateTeamStats();
+
+            for(Building build : turrets){
+                Turret block = (Turret)build.block;
+                for(Units.Sortf sort : sorts){
+                    assertSame(referenceTarget(block, build, sort), targets.findTarget(build.team, build.x, build.y, block.range, block.targetAir, block.targetGround, sort),
+                        "Turret at " + build.tileX() + "," + build.tileY() + " must choose the same target");
+                }
+            }
+        }
+
+        Time.mark();
+        for(int r = 0; r < rounds; r++){
+            state.teams.updateTeamStats();
+            for(Building build : turrets){
+                referenceTarget((Turret)build.block, build, UnitSorts.closest);
+            }
+        }
+        Log.info(Time.elapsed() + "ms for " + rounds * turrets.size + " individual target queries");
+
+        int queries = targets.queries, skipped = targets.skipped;
+
+        Time.mark();
+        for(int r = 0; r < rounds; r++){
+            state.teams.updateTeamStats();
+            for(Building build : turrets){
+                Turret block = (Turret)build.block;
+                targets.findTarget(build.team, build.x, build.y, block.range, block.targetAir, block.targetGround, UnitSorts.closest);
+            }
+        }
+        Log.info(Time.elapsed() + "ms for " + (targets.queries - queries) + " shared target queries, " + (targets.skipped - skipped) + " without enemies in range");
+
+        assertTrue(targets.skipped - skipped > (targets.queries - queries) / 2, "Most of the line must be out of range of the wave");
+
+        //removing enemy blocks must not leave them targetable
+        for(int x = 30; x < 60; x++){
+            world.tile(x, 34).setAir();
+        }
+        world.tile(45, 36).setAir();
+        units.each(Unit::remove);
+        state.teams.updateTeamStats();
+
+        for(Building build : turrets){
+            Turret block = (Turret)build.block;
+            assertNull(targets.findTarget(build.team, build.x, build.y, block.range, block.targetAir, block.targetGround, UnitSorts.closest));
+        }
+    }
+
+    /** Target selection of turrets before {@link TargetIndexer}. */
+    static Teamc referenceTarget(Turret block, Building build, Units.Sortf sort){
+        if(block.targetAir && !block.targetGround){
+            return Units.bestEnemy(build.team, build.x, build.y, block.range, e -> !e.dead() && !e.isGrounded(), sort);
+        }
+        return Units.bestTarget(build.team, build.x, build.y, block.range, e -> !e.dead() && (e.isGrounded() || block.targetAir) && (!e.isGrounded() || block.targetGround), b -> block.targetGround, sort);
+    }
+
     void updateBlocks(int times){
         for(Tile tile : world.tiles){
             if(tile.build != null && tile.isCenter()){
@@ -598,6 +1198,676 @@ public class ApplicationTests{
         assertNotEquals(0, itemsa[0]);
     }
 
+    @Test
+    void pathfinderConvergenceBench(){
+        int size = 500;
+        Team[] teams = {Team.sharded, Team.crux, Team.green};
+
+        Tiles tiles = world.resize(size, size);
+        world.beginMapLoad();
+        tiles.fill();
+        for(int i = 0; i < teams.length; i++){
+            tiles.getn(20 + i * 220, 20 + i * 220).setBlock(Blocks.coreShard, teams[i], 0);
+        }
+        world.endMapLoad();
+        state.set(State.playing);
+
+        for(Team team : teams){
+            for(int cost = 0; cost < Pathfinder.costTypes.size; cost++){
+                pathfinder.getField(team, cost, Pathfinder.fieldCore);
+            }
+        }
+
+        Time.mark();
+        awaitPathfinder();
+        Log.info(Time.elapsed() + "ms for initial convergence of " + teams.length * Pathfinder.costTypes.size + " flowfields");
+
+        //mass block placement
+        for(int x = 50; x < size - 50; x += 3){
+            for(int y = 50; y < size - 50; y += 3){
+                tiles.getn(x, y).setBlock(Blocks.copperWall, Team.derelict);
+            }
+        }
+
+        Time.mark();
+        awaitPathfinder();
+        Log.info(Time.elapsed() + "ms for convergence after mass block placement");
+    }
+
+    @Test
+    void pathfinderRepairMatchesRecalculation(){
+        int size = 80;
+        Rand rand = new Rand(1);
+
+        Tiles tiles = world.resize(size, size);
+        world.beginMapLoad();
+        tiles.fill();
+        tiles.getn(10, 10).setBlock(Blocks.coreShard, Team.sharded, 0);
+        world.endMapLoad();
+        state.set(State.playing);
+
+        Flowfield field = pathfinder.getField(Team.crux, Pathfinder.costGround, Pathfinder.fieldCore);
+        awaitPathfinder();
+
+        for(int i = 0; i < 200; i++){
+            Tile tile = tiles.getn(rand.random(20, size - 5), rand.random(5, size - 5));
+
+            //mix of impassable derelict walls, passable enemy walls and removals
+            int type = rand.random(2);
+            if(type == 0){
+                tile.setBlock(Blocks.copperWall, Team.derelict);
+            }else if(type == 1){
+                tile.setBlock(Blocks.titaniumWall, Team.sharded);
+            }else{
+                tile.setAir();
+            }
+
+            awaitPathfinder();
+
+            Flowfield expected = pathfinder.calculateField(Team.crux, Pathfinder.costGround, Pathfinder.fieldCore);
+            for(int x = 0; x < size; x++){
+                for(int y = 0; y < size; y++){
+                    int index = x + y * size;
+                    boolean reached = field.searches[index] == field.search && field.weights[index] != -1;
+                    assertEquals(expected.weights[index], reached ? field.weights[index] : -1, "Weight mismatch at " + x + ", " + y + " after " + (i + 1) + " edits");
+                }
+            }
+        }
+    }
+
+    @Test
+    void hierarchicalPathfindingBench(){
+        int size = 1000, queries = 20;
+        Rand rand = new Rand(2);
+
+        Tiles tiles = world.resize(size, size);
+        world.beginMapLoad();
+        tiles.fill();
+        for(int i = 0; i < size * size / 8; i++){
+            tiles.geti(rand.random(size * size - 1)).setBlock(Blocks.stoneWall);
+        }
+        world.endMapLoad();
+
+        Team team = Team.crux;
+        Boolf<Tile> passable = t -> !t.solid();
+        Seq<Tile> starts = new Seq<>(), ends = new Seq<>();
+        while(starts.size < queries){
+            Tile start = tiles.getn(rand.random(20, 100), rand.random(20, size - 20)), end = tiles.getn(rand.random(size - 100, size - 20), rand.random(20, size - 20));
+            if(passable.get(start) && passable.get(end)){
+                starts.add(start);
+                ends.add(end);
+            }
+        }
+
+        //plain A* with the same costs, as used on smaller maps
+        int minSize = HierarchicalAstar.minMapSize;
+        HierarchicalAstar.minMapSize = Integer.MAX_VALUE;
+        IntSeq astarLengths = new IntSeq();
+        Time.mark();
+        for(int i = 0; i < queries; i++){
+            astarLengths.add(pathfinder.findPath(team, Pathfinder.costGround, starts.get(i), ends.get(i)).size);
+        }
+        float astarTime = Time.elapsed() / queries;
+        HierarchicalAstar.minMapSize = minSize;
+
+        assertTrue(HierarchicalAstar.useFor(size, size));
+        HierarchicalAstar graph = pathfinder.getGraph(team, Pathfinder.costGround);
+
+        Time.mark();
+        pathfinder.findPath(team, Pathfinder.costGround, starts.first(), ends.first());
+        Log.info(Time.elapsed() + "ms for the first hierarchical query, which places all entrances");
+
+        float hierarchicalTime = 0f;
+        for(int i = 0; i < queries; i++){
+            Time.mark();
+            Seq<Tile> path = pathfinder.findPath(team, Pathfinder.costGround, starts.get(i), ends.get(i));
+            hierarchicalTime += Time.elapsed();
+
+            assertEquals(astarLengths.get(i) > 0, path.size > 0, "Hierarchical pathfinding must find a path if A* does");
+            if(path.any()){
+                assertEquals(ends.get(i), path.peek());
+                Tile prev = starts.get(i);
+                for(Tile tile : path){
+                    assertEquals(1, Math.abs(tile.x - prev.x) + Math.abs(tile.y - prev.y), "Path must be contiguous");
+                    assertTrue(passable.get(tile));
+                    prev = tile;
+                }
+            }
+        }
+
+        int clusters = Mathf.ceil(size / (float)HierarchicalAstar.defaultClusterSize);
+        Log.info("A*: " + astarTime + "ms per query, " + (size * size * 5L + size * size / 8) / 1024 + " KB of buffers");
+        Log.info("Hierarchical: " + hierarchicalTime / queries + "ms per query, " + graph.memoryUsage() / 1024 + " KB for " + graph.builtClusters() + " / " + clusters * clusters + " built clusters");
+        Log.info("A flowfield on this map uses " + pathfinder.getField(team, Pathfinder.costGround, Pathfinder.fieldCore).memoryUsage() / 1024 + " KB");
+
+        //a tile change only invalidates the clusters around it
+        Seq<Tile> path = pathfinder.findPath(team, Pathfinder.costGround, starts.first(), ends.first());
+        Tile blocked = path.get(path.size / 2);
+        blocked.setBlock(Blocks.stoneWall);
+
+        Time.mark();
+        path = pathfinder.findPath(team, Pathfinder.costGround, starts.first(), ends.first());
+        Log.info(Time.elapsed() + "ms for a query after a tile change");
+        assertFalse(path.contains(blocked, true), "Paths must avoid changed tiles");
+    }
+
+    @Test
+    void unitSpatialIndexBench(){
+        int size = 500, unitCount = 6000, frames = 100;
+        float worldSize = size * tilesize;
+        Rand rand = new Rand(3);
+
+        Tiles tiles = world.resize(size, size);
+        world.beginMapLoad();
+        tiles.fill();
+        world.endMapLoad();
+
+        Seq<Unit> units = new Seq<>();
+        for(int i = 0; i < unitCount; i++){
+            Unit unit = UnitTypes.dagger.create(i % 2 == 0 ? Team.sharded : Team.crux);
+            unit.set(rand.random(worldSize), rand.random(worldSize));
+            unit.add();
+            units.add(unit);
+        }
+
+        state.teams.updateTeamStats();
+        Groups.unit.updatePhysics();
+
+        //the previous approach: clear and re-insert every unit into a quadtree for its team and the group
+        QuadTree<Unit> teamTree = new QuadTree<>(world.getQuadBounds(new Rect())), groupTree = new QuadTree<>(world.getQuadBounds(new Rect()));
+        Time.mark();
+        for(int f = 0; f < frames; f++){
+            moveUnits(units, rand);
+            teamTree.clear();
+            groupTree.clear();
+            for(Unit unit : units){
+                teamTree.insert(unit);
+                groupTree.insert(unit);
+            }
+        }
+        Log.info("Quadtree rebuild: " + Time.elapsed() / frames + "ms per frame for " + unitCount + " units");
+
+        Time.mark();
+        for(int f = 0; f < frames; f++){
+            moveUnits(units, rand);
+            state.teams.updateTeamStats();
+            Groups.unit.updatePhysics();
+        }
+        Log.info("Incremental grid: " + Time.elapsed() / frames + "ms per frame for " + unitCount + " units");
+
+        //remove some units, then check that queries match a brute-force search
+        for(int i = 0; i < unitCount / 10; i++){
+            units.remove(rand.random(units.size - 1)).remove();
+        }
+        state.teams.updateTeamStats();
+        Groups.unit.updatePhysics();
+
+        Rect hitbox = new Rect();
+        for(int i = 0; i < 200; i++){
+            float x = rand.random(worldSize), y = rand.random(worldSize), range = rand.random(10f, 300f);
+            int[] found = {0};
+            Units.nearby(Team.sharded, x - range, y - range, range * 2f, range * 2f, u -> found[0]++);
+
+            int expected = units.count(u -> {
+                u.hitbox(hitbox);
+                return u.team == Team.sharded && hitbox.overlaps(x - range, y - range, range * 2f, range * 2f);
+            });
+            assertEquals(expected, found[0], "Spatial index query must match a brute-force search");
+        }
+    }
+
+    void moveUnits(Seq<Unit> units, Rand rand){
+        //a small fraction of units move each frame
+        for(int i = 0; i < units.size / 20; i++){
+            Unit unit = units.get(rand.random(units.size - 1));
+            unit.trns(rand.range(8f), rand.range(8f));
+        }
+    }
+
+    @Test
+    void logicCompiledMatchesInterpreter(){
+        String[] operands = {"a", "b", "c", "i", "0", "1", "-3", "2.5", "0x10", "\"str\"", "null", "true", "@counter"};
+        //rand uses a shared generator, so its results can't be compared between executors
+        Seq<LogicOp> ops = Seq.with(LogicOp.all);
+        ops.remove(LogicOp.rand);
+        Rand rand = new Rand(5);
+
+        for(int program = 0; program < 300; program++){
+            int length = rand.random(5, 30);
+            StringBuilder code = new StringBuilder();
+
+            for(int i = 0; i < length; i++){
+                String a = operands[rand.random(operands.length - 1)], b = operands[rand.random(operands.length - 1)], dest = operands[rand.random(3)];
+
+                switch(rand.random(9)){
+                    case 0, 1 -> code.append("set ").append(rand.chance(0.05) ? "@counter" : dest).append(" ").append(a);
+                    case 2, 3, 4, 5 -> code.append("op ").append(ops.random(rand).name()).append(" ").append(dest).append(" ").append(a).append(" ").append(b);
+                    case 6, 7 -> code.append("jump ").append(rand.random(length - 1)).append(" ").append(ConditionOp.all[rand.random(ConditionOp.all.length - 1)].name()).append(" ").append(a).append(" ").append(b);
+                    case 8 -> code.append(rand.chance(0.5) ? "end" : "noop");
+                    default -> code.append("op add i i 1");
+                }
+                code.append("\n");
+            }
+
+            LCompiler.enabled = false;
+            LExecutor interpreted = new LExecutor();
+            interpreted.load(code.toString());
+
+            LCompiler.enabled = true;
+            LExecutor compiled = new LExecutor();
+            compiled.load(code.toString());
+
+            for(int step = 0; step < 500; step++){
+                interpreted.runOnce();
+                compiled.runOnce();
+
+                for(int v = 0; v < interpreted.names.length; v++){
+                    String message = "Variable '" + interpreted.names[v] + "' differs after " + step + " steps in program:\n" + code;
+
+                    assertEquals(interpreted.isobj[v], compiled.isobj[v], message);
+                    if(interpreted.isobj[v]){
+                        assertEquals(interpreted.objs[v], compiled.objs[v], message);
+                    }else{
+                        assertEquals(interpreted.nums[v], compiled.nums[v], message);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void logicCompiledBench(){
+        String code = """
+        set i 0
+        set sum 0
+        op mul x i 3
+        op mod y x 7
+        op add sum sum y
+        op add i i 1
+        jump 2 lessThan i 100000
+        end
+        """;
+
+        for(boolean compile : new boolean[]{false, true}){
+            LCompiler.enabled = compile;
+            LExecutor exec = new LExecutor();
+            exec.load(code);
+
+            Time.mark();
+            for(int i = 0; i < 2_000_000; i++){
+                exec.runOnce();
+            }
+            Log.info((compile ? "Compiled" : "Interpreted") + " logic: " + Time.elapsed() + "ms for 2M instructions");
+        }
+
+        LCompiler.enabled = true;
+    }
+
+    @Test
+    void logicConstantFolding(){
+        LAssembler asm = LAssembler.assemble("""
+        op add x 1 2
+        op mul y x 2
+        op div z 1 0
+        jump 5 lessThan 1 2
+        jump 0 equal @copper @lead
+        op add w @ctrlPlayer true
+        """);
+
+        assertTrue(asm.instructions[0] instanceof SetI);
+        assertTrue(asm.instructions[1] instanceof OpI, "Operations on variables must not be folded");
+        assertTrue(asm.instructions[2] instanceof SetI);
+        assertTrue(asm.instructions[3] instanceof JumpI jump && jump.op == ConditionOp.always);
+        assertTrue(asm.instructions[4] instanceof NoopI);
+        assertTrue(asm.instructions[5] instanceof SetI);
+
+        LExecutor exec = new LExecutor();
+        exec.load(asm);
+        for(int i = 0; i < 6; i++){
+            exec.runOnce();
+        }
+
+        assertEquals(3, exec.num(exec.index("x")));
+        assertTrue(exec.isobj[exec.index("z")] && exec.obj(exec.index("z")) == null);
+        assertEquals(GlobalConstants.ctrlPlayer + 1, exec.num(exec.index("w")));
+    }
+
+    @Test
+    void logicProgramBench(){
+        String[] programs = {
+        //arithmetic loop
+        """
+        op mul x i 3
+        op mod y x 7
+        op add sum sum y
+        op add i i 1
+        jump 0 lessThan i 100000
+        set i 0
+        """,
+        //branches and comparisons
+        """
+        op rand r 10
+        jump 4 greaterThan r 5
+        op sub a a 1
+        jump 5 always
+        op add a a 1
+        op abs b a
+        jump 0 notEqual b 1000000
+        """,
+        //literals and global constants, which are folded while assembling
+        """
+        op mul scale 2 8
+        op add limit @ctrlPlayer 1000
+        set type @copper
+        op add t t scale
+        jump 3 lessThan t limit
+        set t 0
+        """
+        };
+        String[] names = {"arithmetic", "branches", "constants"};
+        int steps = 2_000_000;
+
+        for(int p = 0; p < programs.length; p++){
+            for(boolean compile : new boolean[]{false, true}){
+                LCompiler.enabled = compile;
+                LExecutor exec = new LExecutor();
+                exec.load(programs[p]);
+
+                //warm up
+                for(int i = 0; i < steps / 10; i++){
+                    exec.runOnce();
+                }
+
+                long start = Time.nanos();
+                for(int i = 0; i < steps; i++){
+                    exec.runOnce();
+                }
+                Log.info("Logic " + names[p] + " (" + (compile ? "compiled" : "interpreted") + "): " + Strings.fixed(Time.timeSinceNanos(start) / (float)steps, 2) + "ns per instruction");
+            }
+        }
+
+        LCompiler.enabled = true;
+    }
+
+    @Test
+    void logicProfilerCounts(){
+        LExecutor exec = new LExecutor();
+        exec.load("""
+        op add i i 1
+        set x i
+        jump 0 lessThan i 10
+        """);
+        exec.profile = new LogicProfiler.Profile(exec.instructions.length);
+
+        for(int i = 0; i < 30; i++){
+            exec.runOnce();
+        }
+
+        assertEquals(30, exec.profile.count);
+        assertArrayEquals(new long[]{10, 10, 10}, exec.profile.counts);
+        assertTrue(exec.profile.time > 0);
+        //compiled instructions keep the names of their statements
+        assertArrayEquals(new String[]{"Operation", "Set", "Jump"}, exec.statementNames);
+
+        //reloading discards data of the old program
+        exec.load("noop");
+        assertEquals(1, exec.profile.counts.length);
+        assertEquals(0, exec.profile.count);
+    }
+
+    @Test
+    void logicProgramCacheShares(){
+        LogicProgramCache cache = new LogicProgramCache();
+        String code = """
+        op add i i 1
+        set x cell1
+        """;
+
+        LExecutor[] executors = new LExecutor[3];
+        for(int i = 0; i < executors.length; i++){
+            LAssembler asm = cache.assemble(code, Seq.with("cell1"));
+            asm.putConst("cell1", null);
+            executors[i] = new LExecutor();
+            executors[i].load(asm);
+        }
+
+        assertEquals(1, cache.size());
+        assertEquals(2, cache.hits);
+        assertSame(executors[0].instructions[0], executors[1].instructions[0], "Stateless instructions must be shared");
+
+        //link names change which variables are constant, so they are part of the key
+        LExecutor unlinked = new LExecutor();
+        unlinked.load(cache.assemble(code, new Seq<>()));
+        assertEquals(2, cache.size());
+        unlinked.unload();
+
+        //programs built with another compiler setting must not be reused
+        boolean compile = LCompiler.enabled;
+        LCompiler.enabled = !compile;
+        LExecutor interpreted = new LExecutor();
+        interpreted.load(cache.assemble(code, new Seq<>()));
+        LCompiler.enabled = compile;
+        assertEquals(2, cache.size());
+        assertEquals(!compile, interpreted.instructions[0] instanceof LCompiler.OpC);
+        interpreted.unload();
+
+        //programs that fail to load must not stay in the cache
+        cache.discard(cache.assemble(code, new Seq<>()));
+        assertEquals(1, cache.size());
+
+        //wait instructions have state, so any program containing one is never shared
+        String waiting = "wait 0.5\nop add i i 1";
+        LExecutor first = new LExecutor(), second = new LExecutor();
+        first.load(cache.assemble(waiting, new Seq<>()));
+        second.load(cache.assemble(waiting, new Seq<>()));
+        assertEquals(1, cache.size());
+        assertNotSame(first.instructions[0], second.instructions[0]);
+        assertNotSame(first.instructions[1], second.instructions[1]);
+
+        executors[0].runOnce();
+        assertEquals(1, executors[0].num(executors[0].index("i")));
+        assertEquals(0, executors[1].num(executors[1].index("i")), "Variables must not be shared");
+
+        for(LExecutor exec : executors){
+            exec.unload();
+        }
+        assertEquals(0, cache.size(), "Programs must be evicted once no executor uses them");
+    }
+
+    @Test
+    void logicSchedulerDeterministic(){
+        //'op rand' uses shared state, so it runs on the update thread in processor order
+        String code = """
+        set i 0
+        op mul x i 3
+        op mod y x 7
+        op add sum sum y
+        op rand r 100
+        op add sum sum r
+        op add i i 1
+        jump 1 lessThan i 50
+        """;
+
+        int processors = 200, frames = 30, budget = 40;
+        double[][] results = new double[2][];
+
+        for(int run = 0; run < 2; run++){
+            int threads = run == 0 ? 1 : 4;
+            logicScheduler.setThreads(threads);
+            GlobalConstants.rand.setSeed(6);
+
+            Seq<LExecutor> executors = new Seq<>();
+            for(int i = 0; i < processors; i++){
+                LExecutor exec = new LExecutor();
+                exec.load(code);
+                executors.add(exec);
+            }
+
+            Time.mark();
+            for(int f = 0; f < frames; f++){
+                for(LExecutor exec : executors){
+                    logicScheduler.submit(exec, budget);
+                }
+                logicScheduler.update();
+            }
+            Log.info("Logic scheduler: " + Time.elapsed() / frames + "ms per frame on " + threads + " thread(s), " + logicScheduler.rounds + " rounds");
+
+            results[run] = new double[processors];
+            for(int i = 0; i < processors; i++){
+                LExecutor exec = executors.get(i);
+                results[run][i] = exec.nums[exec.index("sum")];
+                assertTrue(exec.cpuTime > 0);
+            }
+        }
+
+        logicScheduler.setThreads(0);
+        assertArrayEquals(results[0], results[1], "Logic results must not depend on the amount of threads");
+    }
+
+    @Test
+    void logicSchedulerSkipsRemoved(){
+        world.loadMap(testMap);
+        state.set(State.playing);
+        logicScheduler.setThreads(1);
+
+        Tile tile = world.tile(5, 5);
+        tile.setBlock(Blocks.microProcessor, Team.sharded);
+        LogicBuild build = (LogicBuild)tile.build;
+        build.updateCode("op add i i 1");
+
+        //a processor destroyed after submitting its budget must not run it
+        logicScheduler.submit(build.executor, 10);
+        tile.setAir();
+        logicScheduler.update();
+        logicScheduler.setThreads(0);
+
+        assertEquals(0, build.executor.num(build.executor.index("i")), "Removed processors must not run instructions");
+    }
+
+    @Test
+    void physicsParallelDeterministic(){
+        int bodyCount = 4000, steps = 20;
+        Rect bounds = new Rect(0, 0, 2000, 2000);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        PhysicsWorld serial = new PhysicsWorld(bounds), parallel = new PhysicsWorld(bounds, executor, 4);
+        Seq<PhysicsBody> serialBodies = new Seq<>(), parallelBodies = new Seq<>();
+        Rand rand = new Rand(4);
+
+        for(int i = 0; i < bodyCount; i++){
+            //bodies are clustered so that most of them overlap
+            float x = 1000f + rand.range(300f), y = 1000f + rand.range(300f), radius = rand.random(4f, 20f);
+            int layer = rand.random(2);
+
+            for(int j = 0; j < 2; j++){
+                PhysicsBody body = new PhysicsBody();
+                body.x = x;
+                body.y = y;
+                body.radius = radius;
+                body.mass = radius * radius * Mathf.pi;
+                body.layer = layer;
+                (j == 0 ? serial : parallel).add(body);
+                (j == 0 ? serialBodies : parallelBodies).add(body);
+            }
+        }
+
+        long serialTime = 0, parallelTime = 0;
+        for(int i = 0; i < steps; i++){
+            serial.update();
+            serialTime += serial.sortTime + serial.solveTime;
+            parallel.update();
+            parallelTime += parallel.sortTime + parallel.solveTime;
+        }
+
+        executor.shutdown();
+
+        Log.info("Physics: " + Strings.fixed(serialTime / 1000000f / steps, 3) + "ms per step serial, " + Strings.fixed(parallelTime / 1000000f / steps, 3) + "ms per step on 4 threads (" + bodyCount + " bodies)");
+
+        for(int i = 0; i < bodyCount; i++){
+            assertEquals(serialBodies.get(i).x, parallelBodies.get(i).x, "Physics results must not depend on the amount of threads");
+            assertEquals(serialBodies.get(i).y, parallelBodies.get(i).y, "Physics results must not depend on the amount of threads");
+        }
+    }
+
+    void awaitPathfinder(){
+        long start = Time.millis();
+        while(!pathfinder.isConverged()){
+            if(Time.timeSinceMillis(start) > 60 * 1000){
+                fail("Pathfinder did not converge in time.");
+            }
+            Threads.sleep(5);
+        }
+    }
+
+    @Test
+    void chunkedSaveBench(){
+        int size = 600;
+        Rand rand = new Rand(16);
+        Block[] floors = {Blocks.stone, Blocks.sand, Blocks.grass, Blocks.darksand}, walls = {Blocks.stoneWall, Blocks.sandWall, Blocks.duneWall};
+
+        Tiles tiles = world.resize(size, size);
+        world.beginMapLoad();
+        tiles.fill();
+        for(Tile tile : tiles){
+            //patches of floor and walls, so runs are realistic
+            tile.setFloor(floors[(tile.x / 13 + tile.y / 7) % floors.length].asFloor());
+            if(rand.chance(0.01)) tile.setOverlay(Blocks.oreCopper);
+            if((tile.x / 5 + tile.y / 9) % 7 == 0) tile.setBlock(walls[rand.random(walls.length - 1)]);
+        }
+        Block[] buildings = {Blocks.conveyor, Blocks.mechanicalDrill, Blocks.sorter};
+        for(int i = 0; i < 4000; i++){
+            Tile tile = tiles.get(rand.random(2, size - 3), rand.random(2, size - 3));
+            tile.setBlock(buildings[rand.random(buildings.length - 1)], rand.chance(0.2) ? Team.crux : Team.sharded, rand.random(3));
+
+            //building state differs between buildings, so reading data at the wrong offset shows up
+            Building build = tile.build;
+            build.health = rand.random(1f, build.maxHealth);
+            if(build.block == Blocks.mechanicalDrill) build.items.add(Items.copper, rand.random(1, 10));
+            if(build instanceof SorterBuild sorter) sorter.sortItem = content.item(rand.random(content.items().size - 1));
+        }
+        tiles.getn(size / 2, size / 2).setBlock(Blocks.coreShard, Team.sharded);
+        world.endMapLoad();
+
+        int[] expected = new int[size * size * 2];
+        ObjectMap<Tile, String> expectedBuildings = new ObjectMap<>();
+        for(int i = 0; i < size * size; i++){
+            Tile tile = tiles.geti(i);
+            expected[i * 2] = tile.floorID() << 16 | tile.overlayID();
+            expected[i * 2 + 1] = tile.blockID();
+            if(tile.build != null && tile.isCenter() && Structs.contains(buildings, tile.block())) expectedBuildings.put(tile, buildingState(tile.build));
+        }
+
+        for(SaveVersion version : new SaveVersion[]{SaveIO.getSaveWriter(5), SaveIO.getSaveWriter(6)}){
+            Fi file = saveDirectory.child("chunked.msav");
+
+            try(DataOutputStream stream = new DataOutputStream(new FastDeflaterOutputStream(file.write(false, bufferSize)))){
+                stream.write(SaveIO.header);
+                stream.writeInt(version.version);
+                version.write(stream);
+            }catch(IOException e){
+                throw new RuntimeException(e);
+            }
+
+            Time.mark();
+            SaveIO.load(file);
+            Log.info("Loaded " + size + "x" + size + " save (version " + version.version + ", " + file.length() / 1024 + " KB) in " + Time.elapsed() + "ms");
+
+            for(int i = 0; i < size * size; i++){
+                assertEquals(expected[i * 2], world.tiles.geti(i).floorID() << 16 | world.tiles.geti(i).overlayID(), "Floor differs at " + i);
+                assertEquals(expected[i * 2 + 1], world.tiles.geti(i).blockID(), "Block differs at " + i);
+            }
+            for(var entry : expectedBuildings){
+                Tile tile = world.tile(entry.key.x, entry.key.y);
+                assertNotNull(tile.build, "Building missing at " + tile.x + "," + tile.y);
+                assertEquals(entry.value, buildingState(tile.build), "Building differs at " + tile.x + "," + tile.y);
+            }
+            assertTrue(state.teams.playerCores().size > 0);
+        }
+    }
+
+    static String buildingState(Building build){
+        return build.block.name + " " + build.team + " " + build.rotation + " " + build.health + " " + (build.items == null ? 0 : build.items.total()) + " " + build.config();
+    }
+
     @Test
     void load77Save(){
         resetWorld();